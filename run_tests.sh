@@ -68,6 +68,16 @@ run_test "Memory System Test" "TestMemorySystem" "Tests memory operations, MAR,
 
 run_test "Program Loader Test" "TestLoader" "Tests program loading functionality"
 
+run_test "Program Loader Format Test" "TestProgramLoader" "Tests loader format sniffing, fast line scanners and entry headers"
+
+run_test "Assembler Test" "TestAssembler" "Tests streaming assembly and label backpatching"
+
+run_test "Machine Core Test" "TestMachineCore" "Tests instruction execution and the decoded-instruction cache"
+
+run_test "Paged Memory Test" "TestPagedMemory" "Tests copy-on-write memory snapshots, paged storage and lazy loading"
+
+run_test "Cache Model Test" "TestCache" "Tests cache mapping, replacement, write policies and statistics"
+
 run_test "Final Test Suite" "FinalTestSuite" "Comprehensive test suite for all components"
 
 # Run integration tests if available
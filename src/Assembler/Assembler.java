@@ -1,37 +1,50 @@
 package Assembler;
 
+import Assembler.AssemblyResult.Fixup;
+import BasicMachine.CPU_Module.InstructionSet;
+
 import java.io.*;
+import java.nio.file.*;
 import java.util.*;
 
 /**
  * Assembler.java
  *
- * A simple two-pass assembler implementation.
+ * A simple assembler implementation.
  *
  * Overview:
  *   An assembler translates assembly language
  *   into binary machine code
  *
  * This assembler does:
- *   1. Reads an input file called "source.src".
+ *   1. Reads an input file called "source.src", expanding MACROs
+ *      and INCLUDEs (see Preprocessor).
  *   2. Pass 1 → Builds a SYMBOL TABLE:
  *        - Maps labels (like LOOP, START) to memory addresses.
  *   3. Pass 2 → Generates MACHINE CODE:
  *        - Converts each assembly instruction or data definition into
  *          a 16-bit binary representation.
+ *      (pass1/pass2 are still available; main() uses the single-pass
+ *       streaming mode in assemble(), which backpatches forward
+ *       label references instead of re-reading the source)
  *   4. Outputs:
  *        - output.lst
- *        - load.ld
+ *        - load.ld (headed by the entry point, if END / START names one)
+ *        - load.bin (binary load image, only with -b / --binary)
+ *
+ * Each Assembler instance owns its own symbol table and image, and
+ * every call to assemble() hands back an immutable AssemblyResult.
+ * An instance must not be shared between threads; use one instance
+ * per thread (or per job), while results can be shared freely.
  */
 public class Assembler {
     /* -----------------------------------------------------------
      * Main Method
      * -----------------------------------------------------------
      * Orchestrates everything:
-     *   1. Read source.src program
-     *   2. Pass 1 → build symbol table
-     *   3. Pass 2 → generate machine code
-     *   4. Write output files
+     *   1. Stream source.src line by line
+     *   2. Assemble in one pass, backpatching forward references
+     *   3. Write output files
      */
     public static void main(String[] args) throws IOException {
         System.out.println("Assembler running...");
@@ -44,22 +57,18 @@ public class Assembler {
             return;
         }
 
-        List<String> program = new ArrayList<>();
+        // Run assembler (single streaming pass)
+        AssemblyResult result = new Assembler().assemble(file.toPath());
+        result.generateListing("output.lst");
+        result.generateLoadFile("load.ld");
 
-        // Read the source file line by line
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                program.add(line);
-            }
+        // Optional binary load image (-b / --binary)
+        if (args.length > 0 && (args[0].equals("-b") || args[0].equals("--binary"))) {
+            result.generateImage("load.bin");
+            System.out.println("Assembler completed. Output files: output.lst, load.ld, load.bin");
+            return;
         }
 
-        // Run assembler
-        pass1(program);
-        pass2(program);
-        generateListing("output.lst");
-        generateLoadFile("load.ld");
-
         System.out.println("Assembler completed. Output files: output.lst, load.ld");
     }
 
@@ -68,346 +77,423 @@ public class Assembler {
     /* -----------------------------------------------------------
      * 1) Opcode Table
      * -----------------------------------------------------------
-     * Maps assembly mnemonics (like LDR, LDA, STR) to their 6-bit
-     * opcode values as binary strings.
+     * Mnemonics (like LDR, LDA, STR) are looked up in the shared ISA
+     * table, BasicMachine.CPU_Module.InstructionSet, which the CPU
+     * decoder and the disassembler use as well.  Fields are packed
+     * into an int with shifts, so no binary strings are built anywhere
+     * on the encoding path.
      *
      * Machine instruction format (16 bits):
      *   [6 bits: opcode][2 bits: register][2 bits: index register][1 bit: indirect][5 bits: address]
      *
      * Example:  LDR 3,0,10
-     *   opcode = "000001" (LDR)
-     *   R      = "11"    (register 3)
-     *   IX     = "00"    (no index register)
-     *   I      = "0"     (direct addressing)
-     *   addr   = "01010" (decimal 10 → binary 01010)
-     *   Final machine code = 000001110001010
+     *   opcode = 0b000001 (LDR)              << 10
+     *   R      = 0b11     (register 3)       << 8
+     *   IX     = 0b00     (no index register) << 6
+     *   I      = 0b0      (direct addressing) << 5
+     *   addr   = 0b01010  (decimal 10)
+     *   Final machine code = 0000011100001010
      */
-    private static final Map<String, String> opcodeTable = new HashMap<>();
-    static {
-        // Miscellaneous Instructions
-        opcodeTable.put("HLT", "000000"); // Halt program execution
-        opcodeTable.put("TRAP", "011000"); // Software interrupt (trap)
-
-        // Load/Store Instructions
-        opcodeTable.put("LDR", "000001"); // Load register from memory
-        opcodeTable.put("LDA", "000011"); // Load accumulator
-        opcodeTable.put("STR", "000010"); // Store register to memory
-        opcodeTable.put("LDX", "100001"); // Load index register
-        opcodeTable.put("STX", "101010"); // Store index register
-
-        // Transfer (branch/jump) Instructions
-        opcodeTable.put("JZ",  "001000"); // Jump if Zero flag is set
-        opcodeTable.put("JNE", "001001"); // Jump if Not Equal
-        opcodeTable.put("JCC", "001010"); // Jump if Carry Clear
-        opcodeTable.put("JMA", "001011"); // Jump unconditional
-        opcodeTable.put("JSR", "001100"); // Jump to Subroutine
-        opcodeTable.put("RFS", "001101"); // Return from Subroutine
-        opcodeTable.put("SOB", "001110"); // Subtract One & Branch
-        opcodeTable.put("JGE", "001111"); // Jump if Greater or Equal
-
-        // Arithmetic/Logical Instructions
-        opcodeTable.put("AMR", "000100"); // Add memory to register
-        opcodeTable.put("SMR", "000101"); // Subtract memory from register
-        opcodeTable.put("AIR", "000110"); // Add Immediate to register
-        opcodeTable.put("SIR", "000111"); // Subtract Immediate
-
-        // Multiply/Divide Instructions
-        opcodeTable.put("MLT", "111000"); // Multiply registers
-        opcodeTable.put("DVD", "111001"); // Divide registers
-        opcodeTable.put("TRR", "111010"); // Test register equality
-        opcodeTable.put("AND", "111011"); // Logical AND
-        opcodeTable.put("ORR", "111100"); // Logical OR
-        opcodeTable.put("NOT", "111101"); // Logical NOT
-
-        // Shift/Rotate Instructions
-        opcodeTable.put("SRC", "011111"); // Shift register
-        opcodeTable.put("RRC", "100010"); // Rotate register
-
-        // I/O Instructions
-        opcodeTable.put("IN",  "010100"); // Input from device
-        opcodeTable.put("OUT", "010101"); // Output to device
-        opcodeTable.put("CHK", "110011"); // Check device status
-
-        // Floating-point & Vector Instructions
-        opcodeTable.put("FADD",  "100010"); // Floating Add
-        opcodeTable.put("FSUB",  "100100"); // Floating Subtract
-        opcodeTable.put("VADD",  "100101"); // Vector Add
-        opcodeTable.put("VSUB",  "100110"); // Vector Subtract
-        opcodeTable.put("CNVRT", "100111"); // Convert integer ↔ float
-        opcodeTable.put("LDFR",  "010000"); // Load floating register
-        opcodeTable.put("STFR",  "101001"); // Store floating register
-    }
 
     /* -----------------------------------------------------------
      * Data Structures
      * -----------------------------------------------------------
      * - symbolTable : maps labels to their memory addresses
-     * - memory      : maps memory locations to generated machine code
+     * - image       : generated machine words, indexed by address
+     * - used        : which addresses of image hold an emitted word
      * - sourceMap   : keeps the original source.src line for listing file
+     *                 (not filled when keepSource is off)
      * - locMap      : stores LOC pseudo-op references
+     * - entry       : entry point from END / START (a number, or
+     *                 entryLabel, resolved when the result is built)
      */
-    private static final Map<String, Integer> symbolTable = new HashMap<>();
-    private static final Map<Integer, String> memory = new TreeMap<>();
-    private static final Map<Integer, String> sourceMap = new TreeMap<>();
-    private static final Map<Integer, String> locMap = new TreeMap<>();
+    private final Map<String, Integer> symbolTable = new HashMap<>();
+    private int[] image = new int[2048];
+    private final BitSet used = new BitSet();
+    private final Map<Integer, String> sourceMap = new TreeMap<>();
+    private final Map<Integer, String> locMap = new TreeMap<>();
+    private int entry = -1;
+    private String entryLabel;
+    private boolean keepSource = true;
+    private boolean deferLabels = false;   // see encodeSegment()
+
+    /**
+     * Whether to keep each word's source line for the listing (default
+     * on).  With it off the listing shows only addresses, words and LOC
+     * lines, and a streamed build keeps no per-word text.
+     */
+    public void setKeepSource(boolean keep) {
+        keepSource = keep;
+    }
+
+    // Clear state left over from a previous assemble() call
+    private void reset() {
+        symbolTable.clear();
+        Arrays.fill(image, 0);
+        used.clear();
+        sourceMap.clear();
+        locMap.clear();
+        pendingRefs.clear();
+        pre.reset();
+        streamLoc = 0;
+        entry = -1;
+        entryLabel = null;
+    }
+
+    // Snapshot the current state into an immutable result
+    private AssemblyResult result() {
+        int end = used.length();
+        // An entry label that was never defined is reported as unresolved (with no words)
+        int start = entry;
+        Map<String, List<Fixup>> unresolved = pendingRefs;
+        if (entryLabel != null) {
+            Integer addr = symbolTable.get(entryLabel);
+            if (addr != null) start = checkAddress(addr, "Entry point", entryLabel + " = " + addr);
+            else {
+                unresolved = new HashMap<>(pendingRefs);
+                unresolved.putIfAbsent(entryLabel, Collections.emptyList());
+            }
+        }
+        return new AssemblyResult(Arrays.copyOf(image, end), (BitSet) used.clone(),
+                symbolTable, sourceMap, locMap, unresolved, start, entryLabel);
+    }
 
     /* -----------------------------------------------------------
      * Helper Functions
      * -----------------------------------------------------------
      */
 
-    // Convert register operand (e.g., "R1") into 2-bit binary string
-    private static String regToBin(String r) {
-        String digits = r.replaceAll("[^0-9\\-]", ""); // keep only digits
-        if (digits.isEmpty()) digits = "0";            // default = 0
-        int num = Integer.parseInt(digits);
-        return toBinary(num, 2);
+    // Pack the instruction fields into a 16-bit word
+    private static int encode(int opcode, int r, int ix, int i, int addr) {
+        return (opcode & 0x3F) << 10 | (r & 0x3) << 8 | (ix & 0x3) << 6 | (i & 0x1) << 5 | (addr & 0x1F);
     }
 
-    // Convert index register operand (e.g., "X2") into 2-bit binary
-    private static String ixToBin(String ix) {
-        String digits = ix.replaceAll("[^0-9\\-]", "");
-        if (digits.isEmpty()) digits = "0";
-        int num = Integer.parseInt(digits);
-        return toBinary(num, 2);
+    /**
+     * Highest address a program may use.  The listing, load.ld and the
+     * START header carry 6 octal digits (16 bits) per address, so a word
+     * further up would be written over low memory.
+     */
+    public static final int MAX_ADDRESS = 0xFFFF;
+
+    static int checkAddress(int address, String what, String where) {
+        if (address < 0 || address > MAX_ADDRESS)
+            throw new IllegalArgumentException(what + " out of range (0-177777 octal): " + where);
+        return address;
     }
 
-    // Convert integer into fixed-length binary string
-    private static String toBinary(int value, int bits) {
-        int mask = (1 << bits) - 1;     // e.g., 2 bits → mask = 11b
-        int v = value & mask;           // ensure value fits within 'bits'
-        String bin = Integer.toBinaryString(v);
-        if (bin.length() > bits) bin = bin.substring(bin.length() - bits);
-        return String.format("%" + bits + "s", bin).replace(' ', '0');
+    // Store a word in the image, growing it if LOC moved past the end
+    private void put(int loc, int word) {
+        checkAddress(loc, "Word address", lx.line());
+        if (loc >= image.length) image = Arrays.copyOf(image, Math.max(loc + 1, image.length * 2));
+        image[loc] = word & 0xFFFF;
+        used.set(loc);
     }
 
-    // Convert integer to 6-digit octal (used in output files)
-    private static String toOctal(int value) {
-        int val = value & 0xFFFF;  // ensure 16-bit unsigned range
-        return String.format("%06o", val);
+    // Shift / rotate count field: 0..15, a larger count would spill into bit 4
+    static final int COUNT_BITS = 4;
+
+    static int checkCount(int count, String where) {
+        if (count < 0 || count >= 1 << COUNT_BITS)
+            throw new IllegalArgumentException("Shift count out of range (0-15): " + where);
+        return count;
     }
 
-    // Parse number (decimal or hex "0x...") into integer
-    private static Integer parseNumber(String s) {
-        s = s.trim();
-        try {
-            if (s.startsWith("0x") || s.startsWith("0X")) {
-                return Integer.parseInt(s.substring(2), 16);
-            } else {
-                return Integer.parseInt(s);
-            }
-        } catch (NumberFormatException nfe) {
-            return null; // means operand might be a label
+    // Indirect flag operand: "1" or "I"
+    private boolean isIndirect(int t) {
+        return (lx.isNumber(t) && lx.number(t) == 1) || lx.is(t, "I");
+    }
+
+    // END / START: names the entry point and emits nothing
+    private boolean isEntryDirective() {
+        return lx.is(0, "END") || lx.is(0, "START");
+    }
+
+    // END / START operand: an address, or a label that may be defined later
+    private void setEntry() {
+        if (lx.count() < 2) return;
+        if (lx.isNumber(1)) {
+            entry = checkAddress(lx.number(1), "Entry point", lx.line());
+            entryLabel = null;
+        } else {
+            entry = -1;
+            entryLabel = lx.text(1).toUpperCase();
         }
     }
 
+    // LOC operand: must be a number
+    private int locValue() {
+        if (lx.count() < 2 || !lx.isNumber(1))
+            throw new IllegalArgumentException("LOC needs a numeric address: " + lx.line());
+        return checkAddress(lx.number(1), "LOC", lx.line());
+    }
+
     /* -----------------------------------------------------------
-     * Pass 1: Build Symbol Table
+     * Lexing
      * -----------------------------------------------------------
-     * - Reads each line
-     * - Tracks current memory location (LOC)
-     * - Adds labels to the symbol table with their memory address
+     * Every line goes through the hand-written Lexer, which yields the
+     * label, the mnemonic and the operands (numbers already parsed) in
+     * one scan with no regular expressions.  One Lexer is reused for
+     * all lines of a run.
      */
-    public static void pass1(List<String> lines) {
-        int loc = 0;
-        for (String rawLine : lines) {
-            String line = rawLine;
-
-            // Remove comments (everything after ';')
-            int sem = line.indexOf(';');
-            if (sem >= 0) line = line.substring(0, sem);
-            line = line.trim();
-            if (line.isEmpty()) continue; // skip blank lines
-
-            // Extract label (if any)
-            String label = null;
-            if (line.contains(":")) {
-                String[] parts = line.split(":", 2);
-                label = parts[0].trim().toUpperCase();
-                line  = parts.length > 1 ? parts[1].trim() : "";
-            }
+    private final Lexer lx = new Lexer();
 
-            // Process instruction or data
-            if (!line.isEmpty()) {
-                String[] tokens = line.split("\\s+");
-                String instr = tokens[0].toUpperCase();
-
-                if (instr.equals("LOC")) {
-                    // Change memory location counter
-                    if (tokens.length > 1) {
-                        loc = Integer.parseInt(tokens[1]);
-                        if (label != null) symbolTable.put(label, loc);
-                    }
-                } else if (instr.equals("DATA")) {
-                    // Reserve memory for data
-                    if (label != null) symbolTable.put(label, loc);
-                    loc++;
-                } else {
-                    // Normal instruction
-                    if (label != null) symbolTable.put(label, loc);
-                    loc++;
-                }
-            } else {
-                // Line with only a label
-                if (label != null) symbolTable.put(label, loc);
-            }
-        }
-    }
+    /* -----------------------------------------------------------
+     * Preprocessing
+     * -----------------------------------------------------------
+     * MACRO / ENDM definitions, macro calls and INCLUDE are handled by
+     * the Preprocessor before a line reaches pass 1 or the streaming
+     * loop.  It shares our lexer and hands lines over already lexed.
+     */
+    private final Preprocessor pre = new Preprocessor(lx);
 
     /* -----------------------------------------------------------
-     * Pass 2: Generate Machine Code
+     * Forward Reference Patch List
      * -----------------------------------------------------------
-     * - Converts mnemonics into binary instructions
-     * - Replaces labels with actual addresses (using symbolTable)
+     * When an operand names a label that is not defined yet, the word
+     * is emitted with a zero field and a Fixup is queued under that
+     * label.  As soon as the label gets defined every queued word is
+     * patched in place and the list entry is dropped, so the list only
+     * ever holds references that are still unresolved.  Whatever is
+     * left at the end is handed to AssemblyResult as the unresolved
+     * references (their fields stay 0).
      */
-    public static void pass2(List<String> lines) {
-        int loc = 0;
-        for (String rawLine : lines) {
-            String original = rawLine;
-            String line = rawLine;
-
-            // Strip comments
-            int sem = line.indexOf(';');
-            if (sem >= 0) line = line.substring(0, sem);
-            line = line.trim();
-            if (line.isEmpty()) continue;
-
-            // Remove label if present
-            if (line.contains(":")) {
-                String[] parts = line.split(":", 2);
-                line = parts.length > 1 ? parts[1].trim() : "";
-                if (line.isEmpty()) continue;
-            }
+    private final Map<String, List<Fixup>> pendingRefs = new HashMap<>();
 
-            String[] tokens = line.split("[,\\s]+");
-            String instr = tokens[0].toUpperCase();
+    // Resolve operand token t (number or label); unknown labels are queued for patching
+    private int resolveOperand(int t, int loc, int bits) {
+        if (lx.isNumber(t)) return lx.number(t);
 
-            // LOC directive
-            if (instr.equals("LOC")) {
-                loc = Integer.parseInt(tokens[1]);
-                locMap.put(loc, original);
-                continue;
-            }
+        String label = lx.text(t).toUpperCase();
+        Integer addr = symbolTable.get(label);
+        if (addr != null && !deferLabels) return addr;
 
-            // DATA directive
-            if (instr.equals("DATA")) {
-                String val = tokens[1];
-                Integer num = parseNumber(val);
-                if (num == null) num = symbolTable.getOrDefault(val.toUpperCase(), 0);
-                memory.put(loc, toBinary(num, 16));
-                sourceMap.put(loc, original);
-                loc++;
-                continue;
-            }
+        pendingRefs.computeIfAbsent(label, k -> new ArrayList<>()).add(new Fixup(loc, bits));
+        return 0;
+    }
 
-            // Get opcode
-            String opcode = opcodeTable.getOrDefault(instr, "000000");
-            String R = "00", IX = "00", I = "0";
-            int addr = 0;
+    // Record a label and patch every word that was waiting for it
+    private void defineLabel(String label, int loc) {
+        symbolTable.put(label, loc);
+        List<Fixup> refs = pendingRefs.remove(label);
+        if (refs == null) return;
 
-            // Special case: HLT
-            if (instr.equals("HLT")) {
-                memory.put(loc, opcode + "0000000000");
-                sourceMap.put(loc, original);
-                loc++;
-                continue;
-            }
+        for (Fixup f : refs) {
+            if (f.bits == COUNT_BITS) checkCount(loc, label + " = " + loc);
+            image[f.loc] = f.patch(image[f.loc], loc);
+        }
+    }
 
-            // Special case: LDX
-            if (instr.equals("LDX") && tokens.length >= 3) {
-                R = "00";
-                IX = toBinary(Integer.parseInt(tokens[1]), 2);  // convert "1" → 01 (binary)
-                String operand = tokens[2];
-                addr = parseNumber(operand) != null ? parseNumber(operand) : symbolTable.getOrDefault(operand.toUpperCase(), 0);
+    /* -----------------------------------------------------------
+     * Code Emission
+     * -----------------------------------------------------------
+     * Encodes the line currently in the lexer at the current location
+     * and returns the location of the next word.
+     *
+     * Operand forms:
+     *   r,x,address[,I]          general form
+     *   LDX/STX x,address[,I]    JMA/JSR x,address
+     *   AIR/SIR r,immed          IN/OUT/CHK r,devid
+     *   RFS immed                TRAP code
+     *   SRC/RRC r,count,L/R,A/L  MLT/DVD/TRR/AND/ORR rx,ry   NOT rx
+     *   END/START [label|address]  (entry point, no word)
+     */
+    private int emit(int loc) {
+        int n = lx.count();
+        String original = lx.line();
+
+        // LOC directive
+        if (lx.is(0, "LOC")) {
+            loc = locValue();
+            locMap.put(loc, original);
+            return loc;
+        }
 
-                if (tokens.length > 3) {
-                    I = (tokens[3].equals("1") || tokens[3].equalsIgnoreCase("I")) ? "1" : "0";
-                }
+        // END / START directive (listed with the LOC lines)
+        if (isEntryDirective()) {
+            setEntry();
+            locMap.putIfAbsent(loc, original);
+            return loc;
+        }
 
-                String address = toBinary(addr, 5);
-                String machineCode = opcode + R + IX + I + address;
+        // DATA directive
+        if (lx.is(0, "DATA")) {
+            int num = resolveOperand(1, loc, 16);
+            put(loc, num);
+            if (keepSource) sourceMap.put(loc, original);
+            return loc + 1;
+        }
 
-                memory.put(loc, machineCode);
-                sourceMap.put(loc, original);
-                loc++;
-                continue;
-            }
+        // Get opcode (unknown mnemonics assemble as 0)
+        int opcode = Math.max(InstructionSet.opcodeOf(original, lx.start(0), lx.end(0)), 0);
+        int r = 0, ix = 0, i = 0, addr = 0;
+
+        if (lx.is(0, "HLT")) {
+            // Special case: HLT has no operands
+        } else if ((opcode == InstructionSet.LDX || opcode == InstructionSet.STX) && n >= 3
+                || (opcode == InstructionSet.JMA || opcode == InstructionSet.JSR)
+                   && (n == 3 || n == 4 && lx.is(3, "I"))) {
+            // x,address[,I]
+            ix = lx.digits(1);
+            addr = resolveOperand(2, loc, 5);
+            if (n > 3) i = isIndirect(3) ? 1 : 0;
+        } else if ((opcode == InstructionSet.RFS || opcode == InstructionSet.TRAP) && n == 2) {
+            // immed / code
+            addr = resolveOperand(1, loc, 5);
+        } else if ((opcode == InstructionSet.AIR || opcode == InstructionSet.SIR
+                || opcode == InstructionSet.IN || opcode == InstructionSet.OUT || opcode == InstructionSet.CHK) && n == 3) {
+            // r,immed  |  r,devid
+            r = lx.digits(1);
+            addr = resolveOperand(2, loc, 5);
+        } else if ((opcode == InstructionSet.SRC || opcode == InstructionSet.RRC) && n == 5) {
+            // r,count,L/R,A/L  (A/L in bit 7, L/R in bit 6)
+            r = lx.digits(1);
+            addr = checkCount(resolveOperand(2, loc, COUNT_BITS), lx.line());
+            ix = ((lx.digits(4) & 1) << 1) | (lx.digits(3) & 1);
+        } else {
+            // General instruction case
+            if (n > 1) r = lx.digits(1);
+            if (n > 2) ix = lx.digits(2);
+            if (n > 3) addr = resolveOperand(3, loc, 5);
+            if (n > 4) i = isIndirect(4) ? 1 : 0;
+        }
 
+        put(loc, encode(opcode, r, ix, i, addr));
+        if (keepSource) sourceMap.put(loc, original);
+        return loc + 1;
+    }
 
-            // General instruction case
-            if (tokens.length > 1) R = regToBin(tokens[1]);
-            if (tokens.length > 2) IX = ixToBin(tokens[2]);
-            if (tokens.length > 3) {
-                String operand = tokens[3];
-                Integer num = parseNumber(operand);
-                addr = (num != null) ? num : symbolTable.getOrDefault(operand.toUpperCase(), 0);
-            }
-            if (tokens.length > 4) {
-                I = (tokens[4].equals("1") || tokens[4].equalsIgnoreCase("I")) ? "1" : "0";
-            }
+    /* -----------------------------------------------------------
+     * Single-Pass Streaming Assembly
+     * -----------------------------------------------------------
+     * - Reads lines as they arrive, lexing each one only once
+     * - Emits machine code immediately
+     * - Forward label references go on the patch list and are fixed
+     *   up the moment the label is defined
+     * - The input is never held as a whole; what grows with it is the
+     *   image, the symbol table, the LOC lines and (unless keepSource
+     *   is off) the source line of each emitted word
+     */
+    public AssemblyResult assemble(BufferedReader in, Path baseDir) throws IOException {
+        reset();
+        pre.process(in, baseDir, this::streamLine);
 
-            String address = toBinary(addr, 5);
-            String machineCode = opcode + R + IX + I + address;
+        // Labels never defined keep a zero field, like pass2 does
+        return result();
+    }
+
+    /** Stream a reader; INCLUDE paths are relative to the working directory. */
+    public AssemblyResult assemble(BufferedReader in) throws IOException {
+        return assemble(in, Paths.get("."));
+    }
 
-            memory.put(loc, machineCode);
-            sourceMap.put(loc, original);
-            loc++;
+    /** Stream a source file; INCLUDE paths are relative to the file. */
+    public AssemblyResult assemble(Path file) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        try (BufferedReader br = Files.newBufferedReader(file)) {
+            return assemble(br, dir);
         }
     }
 
+    private int streamLoc;   // location counter of the streaming loop
+
+    // One line of the streaming loop; the line is already in the lexer
+    private void streamLine(String rawLine) {
+        String label = lx.label();
+
+        // A label on a LOC line names the new location
+        boolean isLoc = lx.count() > 1 && lx.is(0, "LOC");
+        if (label != null && !isLoc) defineLabel(label, streamLoc);
+        if (lx.count() == 0) return;
+
+        streamLoc = emit(streamLoc);
+        if (label != null && isLoc) defineLabel(label, streamLoc);
+    }
 
     /* -----------------------------------------------------------
-     * Generate Listing File
+     * Two-Pass Assembly
      * -----------------------------------------------------------
-     * Format:
-     *   <address in octal> <machine code in octal> <original source.src>
+     * Classic mode for a program that is already in memory:
+     * the preprocessor expands it, pass1 builds the symbol table,
+     * pass2 generates the code.
      */
-    public static void generateListing(String outFile) throws IOException {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(outFile))) {
-            Set<Integer> allAddrs = new TreeSet<>();
-            allAddrs.addAll(memory.keySet());
-            allAddrs.addAll(locMap.keySet());
-
-            for (int addr : allAddrs) {
-                if (locMap.containsKey(addr)) {
-                    // Print LOC pseudo-op
-                    writer.printf("              %s%n", locMap.get(addr));
-                    if (memory.containsKey(addr)) {
-                        String addrOct = toOctal(addr);
-                        String valOct  = toOctal(Integer.parseInt(memory.get(addr), 2));
-                        writer.printf("%s %s %s%n", addrOct, valOct, sourceMap.get(addr));
-                    }
-                } else if (memory.containsKey(addr)) {
-                    String addrOct = toOctal(addr);
-                    String valOct  = toOctal(Integer.parseInt(memory.get(addr), 2));
-                    writer.printf("%s %s %s%n", addrOct, valOct, sourceMap.get(addr));
-                }
-            }
+    public AssemblyResult assemble(List<String> lines, Path baseDir) throws IOException {
+        reset();
+        List<String> expanded = pre.expand(lines, baseDir);
+        pass1(expanded);
+        pass2(expanded);
+        return result();
+    }
+
+    /** Two-pass assembly; INCLUDE paths are relative to the working directory. */
+    public AssemblyResult assemble(List<String> lines) throws IOException {
+        return assemble(lines, Paths.get("."));
+    }
+
+    /**
+     * Two-pass assembly of one LOC segment for IncrementalAssembler.
+     * The lines are already preprocessed, and every label operand is
+     * left unresolved (even one the segment defines itself), so linking
+     * fills it from the whole program's symbol table like a full build.
+     */
+    AssemblyResult encodeSegment(List<String> lines) {
+        reset();
+        deferLabels = true;
+        try {
+            pass1(lines);
+            pass2(lines);
+        } finally {
+            deferLabels = false;
         }
+        return result();
     }
 
     /* -----------------------------------------------------------
-     * Generate Load File
+     * Pass 1: Build Symbol Table
      * -----------------------------------------------------------
-     * Format:
-     *   <address in octal> <machine code in octal>
+     * - Reads each line
+     * - Tracks current memory location (LOC)
+     * - Adds labels to the symbol table with their memory address
      */
-    public static void generateLoadFile(String outFile) throws IOException {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(outFile))) {
-            List<Integer> addresses = new ArrayList<>(memory.keySet());
-
-            for (int i = 0; i < addresses.size(); i++) {
-                int addr = addresses.get(i);
-                String addrOct = toOctal(addr);
-                String valOct = toOctal(Integer.parseInt(memory.get(addr), 2));
-
-                if (i < addresses.size() - 1) {
-                    writer.printf("%s %s%n", addrOct, valOct);  // with newline
-                } else {
-                    writer.printf("%s %s", addrOct, valOct);    // no trailing newline
+    private void pass1(List<String> lines) {
+        int loc = 0;
+        for (String rawLine : lines) {
+            if (!lx.lex(rawLine)) continue; // skip blank lines
+            String label = lx.label();
+
+            if (lx.count() == 0) {
+                // Line with only a label
+                symbolTable.put(label, loc);
+                continue;
+            }
+
+            if (lx.is(0, "LOC")) {
+                // Change memory location counter
+                if (lx.count() > 1) {
+                    loc = locValue();
+                    if (label != null) symbolTable.put(label, loc);
                 }
+            } else if (isEntryDirective()) {
+                if (label != null) symbolTable.put(label, loc);
+            } else {
+                // DATA or normal instruction
+                if (label != null) symbolTable.put(label, loc);
+                loc++;
             }
         }
     }
 
-}
\ No newline at end of file
+    /* -----------------------------------------------------------
+     * Pass 2: Generate Machine Code
+     * -----------------------------------------------------------
+     * - Converts mnemonics into binary instructions
+     * - Replaces labels with actual addresses (using symbolTable)
+     */
+    private void pass2(List<String> lines) {
+        int loc = 0;
+        for (String rawLine : lines) {
+            if (!lx.lex(rawLine) || lx.count() == 0) continue;
+            loc = emit(loc);
+        }
+        // Anything still pending was never defined and stays 0
+    }
+}
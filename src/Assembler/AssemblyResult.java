@@ -0,0 +1,153 @@
+package Assembler;
+
+import BasicMachine.Memory_Module.BinaryImage;
+
+import java.io.*;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * AssemblyResult.java
+ *
+ * The output of one Assembler run: the machine words, the symbol table
+ * and the source lines needed for the listing file.
+ *
+ * A result is immutable once built, so it can be handed to other threads
+ * (e.g. a grading service writing files from a pool) without locking.
+ */
+public final class AssemblyResult {
+
+    /** A word whose field still waits for a label value. */
+    public static final class Fixup {
+        public final int loc;   // address of the word to patch
+        public final int bits;  // width of the field (5 = address, 16 = DATA)
+
+        public Fixup(int loc, int bits) {
+            this.loc = loc;
+            this.bits = bits;
+        }
+
+        /** Return word with this field replaced by value. */
+        public int patch(int word, int value) {
+            int mask = (1 << bits) - 1;
+            return (word & ~mask) | (value & mask);
+        }
+    }
+    /* -----------------------------------------------------------
+     * Data Structures
+     * -----------------------------------------------------------
+     * - words       : machine words, indexed by address
+     * - used        : which addresses hold an emitted word
+     * - symbolTable : label → address
+     * - sourceMap   : original source line for each emitted word
+     * - locMap      : LOC pseudo-op lines, keyed by their address
+     * - unresolved  : label → words referring to it that were never
+     *                 patched because the label is not defined
+     * - entry       : entry point named by END / START, -1 = none
+     *                 (entryLabel: the label it named, if any)
+     */
+    private final int[] words;
+    private final BitSet used;
+    private final Map<String, Integer> symbolTable;
+    private final Map<Integer, String> sourceMap;
+    private final Map<Integer, String> locMap;
+    private final Map<String, List<Fixup>> unresolved;
+    private final int entry;
+    private final String entryLabel;
+
+    AssemblyResult(int[] words, BitSet used, Map<String, Integer> symbolTable,
+                   Map<Integer, String> sourceMap, Map<Integer, String> locMap,
+                   Map<String, List<Fixup>> unresolved, int entry, String entryLabel) {
+        this.words = words;
+        this.used = used;
+        this.symbolTable = Collections.unmodifiableMap(new HashMap<>(symbolTable));
+        this.sourceMap = Collections.unmodifiableMap(new TreeMap<>(sourceMap));
+        this.locMap = Collections.unmodifiableMap(new TreeMap<>(locMap));
+        Map<String, List<Fixup>> refs = new HashMap<>();
+        for (Map.Entry<String, List<Fixup>> e : unresolved.entrySet()) {
+            refs.put(e.getKey(), Collections.unmodifiableList(new ArrayList<>(e.getValue())));
+        }
+        this.unresolved = Collections.unmodifiableMap(refs);
+        this.entry = entry;
+        this.entryLabel = entryLabel;
+    }
+
+    /** True if the assembler emitted a word at this address. */
+    public boolean hasWord(int addr) {
+        return addr >= 0 && used.get(addr);
+    }
+
+    /** The 16-bit word at this address, 0 if nothing was emitted there. */
+    public int getWord(int addr) {
+        return hasWord(addr) ? words[addr] : 0;
+    }
+
+    /** Number of words emitted. */
+    public int wordCount() {
+        return used.cardinality();
+    }
+
+    /** Label → address map (read-only). */
+    public Map<String, Integer> getSymbolTable() {
+        return symbolTable;
+    }
+
+    /** Entry point named by END / START, or -1 if there is none (or its label is undefined). */
+    public int getEntryPoint() {
+        return entry;
+    }
+
+    /** Lowest address holding a word, or -1 if nothing was emitted. */
+    public int lowestAddress() {
+        return used.nextSetBit(0);
+    }
+
+    /** Highest address holding a word, or -1 if nothing was emitted. */
+    public int highestAddress() {
+        return used.length() - 1;
+    }
+
+    /** Label → words still referring to it, for labels that were never defined. */
+    public Map<String, List<Fixup>> getUnresolved() {
+        return unresolved;
+    }
+
+    // Raw views for other assemblers in this package; callers must not modify them
+    int[] words()                     { return words; }
+    BitSet usedAddresses()            { return used; }
+    Map<Integer, String> sourceMap()  { return sourceMap; }
+    Map<Integer, String> locMap()     { return locMap; }
+    String entryLabel()               { return entryLabel; }
+
+    /* -----------------------------------------------------------
+     * Generate Listing File
+     * -----------------------------------------------------------
+     * Format:
+     *   <address in octal> <machine code in octal> <original source.src>
+     * headed, like the load file, by the entry point if there is one.
+     */
+    public void generateListing(String outFile) throws IOException {
+        ListingWriter.writeListing(outFile, words, used, sourceMap, locMap, entry);
+    }
+
+    /* -----------------------------------------------------------
+     * Generate Load File
+     * -----------------------------------------------------------
+     * Format:
+     *   [START <entry point in octal>]   (see LoadHeader)
+     *   <address in octal> <machine code in octal>
+     */
+    public void generateLoadFile(String outFile) throws IOException {
+        ListingWriter.writeLoadFile(outFile, words, used, entry);
+    }
+
+    /* -----------------------------------------------------------
+     * Generate Binary Image
+     * -----------------------------------------------------------
+     * Compact alternative to the load file, see BinaryImage for the
+     * format.  Memory.load and ProgramLoader detect it automatically.
+     */
+    public void generateImage(String outFile) throws IOException {
+        BinaryImage.write(Paths.get(outFile), words, used, entry);
+    }
+}
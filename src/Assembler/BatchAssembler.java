@@ -0,0 +1,184 @@
+package Assembler;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * BatchAssembler.java
+ *
+ * Assembles many .src files in one JVM, in parallel across cores.
+ *
+ * Usage:
+ *   java Assembler.BatchAssembler <directory | glob> [threads]
+ *
+ *   java Assembler.BatchAssembler tests
+ *   java Assembler.BatchAssembler "tests/test*.src" 4
+ *
+ * For every source file foo.src this writes foo.lst and foo.ld next to
+ * it, then prints an aggregate summary (files, words, time, throughput).
+ *
+ * Work is handed to a fixed pool through a bounded queue; when the
+ * queue is full the submitting thread assembles the file itself, so a
+ * huge directory never piles up thousands of pending jobs in memory.
+ */
+public class BatchAssembler {
+
+    /** Outcome of assembling one file. */
+    public static final class FileReport {
+        public final Path source;
+        public final int words;
+        public final long nanos;
+        public final String error;   // null on success
+
+        FileReport(Path source, int words, long nanos, String error) {
+            this.source = source;
+            this.words = words;
+            this.nanos = nanos;
+            this.error = error;
+        }
+
+        public boolean ok() { return error == null; }
+    }
+
+    /** Aggregate result of a batch run. */
+    public static final class Summary {
+        public final List<FileReport> files;
+        public final long wallNanos;
+
+        Summary(List<FileReport> files, long wallNanos) {
+            this.files = Collections.unmodifiableList(files);
+            this.wallNanos = wallNanos;
+        }
+
+        public int failures() {
+            int n = 0;
+            for (FileReport f : files) if (!f.ok()) n++;
+            return n;
+        }
+
+        public long totalWords() {
+            long n = 0;
+            for (FileReport f : files) n += f.words;
+            return n;
+        }
+
+        @Override
+        public String toString() {
+            double secs = wallNanos / 1e9;
+            return String.format(
+                    "Files: %d (%d failed)  Words: %d  Time: %.3f s  Throughput: %.1f files/s, %.0f words/s",
+                    files.size(), failures(), totalWords(), secs,
+                    files.size() / Math.max(secs, 1e-9), totalWords() / Math.max(secs, 1e-9));
+        }
+    }
+
+    /* -----------------------------------------------------------
+     * Main Method
+     * ----------------------------------------------------------- */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: java Assembler.BatchAssembler <directory | glob> [threads]");
+            return;
+        }
+
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        List<Path> sources = findSources(args[0]);
+        if (sources.isEmpty()) {
+            System.err.println("Error: no .src files match " + args[0]);
+            return;
+        }
+
+        System.out.printf("Assembling %d file(s) on %d thread(s)...%n", sources.size(), threads);
+        Summary summary = assembleAll(sources, threads);
+
+        for (FileReport f : summary.files) {
+            if (!f.ok()) System.err.println("  FAILED " + f.source + ": " + f.error);
+        }
+        System.out.println(summary);
+    }
+
+    /* -----------------------------------------------------------
+     * Source Discovery
+     * -----------------------------------------------------------
+     * A directory means every *.src file directly inside it; anything
+     * else is a glob whose last path element is matched against the
+     * file names in its parent directory.
+     */
+    public static List<Path> findSources(String dirOrGlob) throws IOException {
+        Path p = Paths.get(dirOrGlob);
+        Path dir;
+        String pattern;
+        if (Files.isDirectory(p)) {
+            dir = p;
+            pattern = "*.src";
+        } else {
+            dir = p.getParent() != null ? p.getParent() : Paths.get(".");
+            pattern = p.getFileName().toString();
+        }
+
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        List<Path> out = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+            for (Path f : ds) {
+                if (Files.isRegularFile(f) && matcher.matches(f.getFileName())) out.add(f);
+            }
+        }
+        Collections.sort(out);
+        return out;
+    }
+
+    /* -----------------------------------------------------------
+     * Parallel Assembly
+     * -----------------------------------------------------------
+     * Each worker thread keeps its own Assembler instance; the results
+     * are written to <name>.lst / <name>.ld beside the source.
+     */
+    public static Summary assembleAll(List<Path> sources, int threads) throws InterruptedException {
+        int n = Math.max(1, threads);
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(n, n, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(n * 4), new ThreadPoolExecutor.CallerRunsPolicy());
+        ThreadLocal<Assembler> assemblers = ThreadLocal.withInitial(Assembler::new);
+
+        long start = System.nanoTime();
+        List<Future<FileReport>> futures = new ArrayList<>(sources.size());
+        for (Path src : sources) {
+            futures.add(pool.submit(() -> assembleOne(assemblers.get(), src)));
+        }
+
+        List<FileReport> reports = new ArrayList<>(sources.size());
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    reports.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    reports.add(new FileReport(sources.get(i), 0, 0, String.valueOf(e.getCause())));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return new Summary(reports, System.nanoTime() - start);
+    }
+
+    // Assemble a single file and write its listing and load file
+    private static FileReport assembleOne(Assembler asm, Path src) {
+        long t0 = System.nanoTime();
+        try {
+            AssemblyResult result = asm.assemble(src);
+            String base = stripExtension(src.toString());
+            result.generateListing(base + ".lst");
+            result.generateLoadFile(base + ".ld");
+            return new FileReport(src, result.wordCount(), System.nanoTime() - t0, null);
+        } catch (Exception e) {
+            return new FileReport(src, 0, System.nanoTime() - t0, e.toString());
+        }
+    }
+
+    private static String stripExtension(String name) {
+        int dot = name.lastIndexOf('.');
+        int slash = Math.max(name.lastIndexOf('/'), name.lastIndexOf('\\'));
+        return dot > slash ? name.substring(0, dot) : name;
+    }
+}
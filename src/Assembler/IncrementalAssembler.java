@@ -0,0 +1,194 @@
+package Assembler;
+
+import Assembler.AssemblyResult.Fixup;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * IncrementalAssembler.java
+ *
+ * Re-assembles one source file repeatedly (e.g. on every save in an
+ * editor), redoing only the work that the last edit made necessary.
+ *
+ * How it works:
+ *   0. MACROs and INCLUDEs are expanded once, over the whole file.
+ *   1. The expanded source is cut into LOC segments: a new segment
+ *      starts at every LOC directive.  Each segment is assembled on its
+ *      own, without preprocessing again, so its words depend only on its
+ *      own text; every label it uses is left as a reference to link.
+ *   2. Encoded segments are cached, keyed by their text.  On a rebuild
+ *      an unchanged segment is taken straight from the cache.
+ *   3. Linking fills the references from the merged symbol table, in
+ *      which (as in a full two-pass build) the last definition of a
+ *      label wins, also for a label defined in several segments.  A
+ *      cached segment is only re-linked when one of the labels it
+ *      refers to changed value.
+ *
+ * Like Assembler, an instance is meant for one thread; keep one
+ * IncrementalAssembler per source file.
+ */
+public class IncrementalAssembler {
+
+    /* -----------------------------------------------------------
+     * Segment Cache
+     * -----------------------------------------------------------
+     * - encoded : the segment assembled on its own
+     * - bound   : label values the linked words were built against
+     * - linked  : address → word, for words with external references
+     */
+    private static final class Segment {
+        final AssemblyResult encoded;
+        Map<String, Integer> bound;
+        Map<Integer, Integer> linked;
+
+        Segment(AssemblyResult encoded) {
+            this.encoded = encoded;
+        }
+    }
+
+    private final Assembler assembler = new Assembler();
+    private final Lexer lexer = new Lexer();
+    private final Preprocessor pre = new Preprocessor(lexer);
+    private Map<String, Segment> cache = new HashMap<>();
+
+    // Statistics for the most recent build
+    private int segmentCount;
+    private int reencoded;
+    private int relinked;
+
+    /** Re-assemble a source file; INCLUDE paths are relative to it. */
+    public AssemblyResult assemble(Path file) throws IOException {
+        return assemble(Files.readAllLines(file), file.toAbsolutePath().getParent());
+    }
+
+    /** Re-assemble the given program; INCLUDE paths are relative to the working directory. */
+    public AssemblyResult assemble(List<String> lines) throws IOException {
+        return assemble(lines, Paths.get("."));
+    }
+
+    /** Re-assemble the given program, reusing cached segments. */
+    public AssemblyResult assemble(List<String> lines, Path baseDir) throws IOException {
+        // Macros and includes are expanded over the whole file first
+        pre.reset();
+        List<String> texts = splitSegments(pre.expand(lines, baseDir));
+        segmentCount = texts.size();
+        reencoded = 0;
+        relinked = 0;
+
+        // 1) Encode changed segments, reuse the rest
+        Map<String, Segment> next = new HashMap<>();
+        List<Segment> segments = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            Segment seg = next.get(text);
+            if (seg == null) seg = cache.get(text);
+            if (seg == null) {
+                seg = new Segment(assembler.encodeSegment(Arrays.asList(text.split("\n", -1))));
+                reencoded++;
+            }
+            next.put(text, seg);
+            segments.add(seg);
+        }
+        cache = next;   // segments no longer in the source drop out
+
+        // 2) Merge symbol tables in source order (later definitions win)
+        Map<String, Integer> symbols = new HashMap<>();
+        for (Segment seg : segments) symbols.putAll(seg.encoded.getSymbolTable());
+
+        // 3) Link, then lay the segments out in one image
+        int[] image = new int[0];
+        BitSet used = new BitSet();
+        Map<Integer, String> sourceMap = new TreeMap<>();
+        Map<Integer, String> locMap = new TreeMap<>();
+        Map<String, List<Fixup>> unresolved = new HashMap<>();
+        int entry = -1;
+        String entryLabel = null;
+
+        for (Segment seg : segments) {
+            link(seg, symbols, unresolved);
+
+            AssemblyResult enc = seg.encoded;
+            BitSet segUsed = enc.usedAddresses();
+            if (segUsed.length() > image.length) image = Arrays.copyOf(image, segUsed.length());
+            int[] words = enc.words();
+            for (int a = segUsed.nextSetBit(0); a >= 0; a = segUsed.nextSetBit(a + 1)) image[a] = words[a];
+            for (Map.Entry<Integer, Integer> e : seg.linked.entrySet()) image[e.getKey()] = e.getValue();
+
+            used.or(segUsed);
+            sourceMap.putAll(enc.sourceMap());
+            locMap.putAll(enc.locMap());
+
+            // The last END / START wins; its label may be defined in another segment
+            if (enc.entryLabel() != null) {
+                entryLabel = enc.entryLabel();
+                entry = symbols.getOrDefault(entryLabel, -1);
+                if (entry >= 0) Assembler.checkAddress(entry, "Entry point", entryLabel + " = " + entry);
+            } else if (enc.getEntryPoint() >= 0) {
+                entryLabel = null;
+                entry = enc.getEntryPoint();
+            }
+        }
+
+        return new AssemblyResult(image, used, symbols, sourceMap, locMap, unresolved, entry, entryLabel);
+    }
+
+    /** Number of LOC segments in the last build. */
+    public int segmentCount() { return segmentCount; }
+
+    /** Segments that had to be encoded from scratch in the last build. */
+    public int segmentsReencoded() { return reencoded; }
+
+    /** Cached segments whose label references were re-linked in the last build. */
+    public int segmentsRelinked() { return relinked; }
+
+    /* -----------------------------------------------------------
+     * Helper Functions
+     * ----------------------------------------------------------- */
+
+    // Cut the program into segments, each new one starting at a LOC line
+    private List<String> splitSegments(List<String> lines) {
+        List<String> out = new ArrayList<>();
+        StringBuilder cur = new StringBuilder();
+        boolean empty = true;
+        for (String line : lines) {
+            boolean isLoc = lexer.lex(line) && lexer.count() > 0 && lexer.is(0, "LOC");
+            if (isLoc && !empty) {
+                out.add(cur.toString());
+                cur.setLength(0);
+                empty = true;
+            }
+            if (!empty) cur.append('\n');
+            cur.append(line);
+            empty = false;
+        }
+        if (!empty) out.add(cur.toString());
+        return out;
+    }
+
+    // Patch the segment's external references, unless nothing they use changed
+    private void link(Segment seg, Map<String, Integer> symbols, Map<String, List<Fixup>> unresolved) {
+        Map<String, List<Fixup>> refs = seg.encoded.getUnresolved();
+
+        Map<String, Integer> bound = new HashMap<>();
+        for (String label : refs.keySet()) {
+            Integer value = symbols.get(label);
+            if (value != null) bound.put(label, value);
+            else unresolved.computeIfAbsent(label, k -> new ArrayList<>()).addAll(refs.get(label));
+        }
+        if (bound.equals(seg.bound)) return;
+
+        int[] words = seg.encoded.words();
+        Map<Integer, Integer> linked = new HashMap<>();
+        for (Map.Entry<String, Integer> e : bound.entrySet()) {
+            for (Fixup f : refs.get(e.getKey())) {
+                if (f.bits == Assembler.COUNT_BITS) Assembler.checkCount(e.getValue(), e.getKey() + " = " + e.getValue());
+                int word = linked.getOrDefault(f.loc, words[f.loc]);
+                linked.put(f.loc, f.patch(word, e.getValue()));
+            }
+        }
+        if (seg.bound != null) relinked++;   // fresh segments are counted as re-encoded
+        seg.bound = bound;
+        seg.linked = linked;
+    }
+}
@@ -0,0 +1,154 @@
+package Assembler;
+
+import BasicMachine.Memory_Module.NumberScanner;
+
+import java.util.*;
+
+/**
+ * Lexer.java
+ *
+ * Character-level lexer for one assembler source line.
+ *
+ * Line syntax:
+ *   [label:] [mnemonic [operand {, | space} operand ...]] [; comment]
+ *
+ * Tokens are WORDs (mnemonics, register names like R1, label names)
+ * and NUMBERs:
+ *   decimal  42, -3
+ *   hex      0x2A
+ *   octal    52o, 52q
+ *
+ * A Lexer is reused line after line: tokens are kept as start/end
+ * offsets into the line plus a parsed value, in arrays that only grow,
+ * so lexing allocates nothing except the label string when there is
+ * one.  Strings for operands are only made on request (text()).
+ * Numbers are recognised with NumberScanner, without exceptions.
+ */
+final class Lexer {
+    static final int WORD = 0;
+    static final int NUMBER = 1;
+
+    private String line;
+    private String label;          // upper-case label, or null
+
+    private int count;
+    private int[] kind = new int[8];
+    private int[] start = new int[8];
+    private int[] end = new int[8];
+    private int[] value = new int[8];
+
+    /**
+     * Lex a line.  Returns false for blank / comment-only lines.
+     */
+    boolean lex(String rawLine) {
+        line = rawLine;
+        label = null;
+        count = 0;
+
+        // Code ends at the comment
+        int stop = rawLine.indexOf(';');
+        if (stop < 0) stop = rawLine.length();
+
+        int pos = 0;
+        int colon = rawLine.indexOf(':');
+        if (colon >= 0 && colon < stop) {
+            int a = skipBlank(0, colon);
+            int b = colon;
+            while (b > a && rawLine.charAt(b - 1) <= ' ') b--;
+            label = rawLine.substring(a, b).toUpperCase();
+            pos = colon + 1;
+        }
+
+        while (true) {
+            while (pos < stop && isSeparator(rawLine.charAt(pos))) pos++;
+            if (pos >= stop) break;
+            int a = pos;
+            while (pos < stop && !isSeparator(rawLine.charAt(pos))) pos++;
+            add(a, pos);
+        }
+        return label != null || count > 0;
+    }
+
+    /** The line most recently lexed. */
+    String line() { return line; }
+
+    /** Upper-case label of the line, or null. */
+    String label() { return label; }
+
+    /** Number of tokens after the label. */
+    int count() { return count; }
+
+    int kind(int i)  { return kind[i]; }
+    int start(int i) { return start[i]; }
+    int end(int i)   { return end[i]; }
+
+    /** True if token i is a number. */
+    boolean isNumber(int i) { return kind[i] == NUMBER; }
+
+    /** Value of number token i. */
+    int number(int i) { return value[i]; }
+
+    /** Text of token i (allocates). */
+    String text(int i) { return line.substring(start[i], end[i]); }
+
+    /** Case-insensitive compare of token i with an upper-case keyword. */
+    boolean is(int i, String keyword) {
+        int len = end[i] - start[i];
+        if (len != keyword.length()) return false;
+        for (int k = 0; k < len; k++) {
+            if (Character.toUpperCase(line.charAt(start[i] + k)) != keyword.charAt(k)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Digits of token i read as a decimal number, ignoring any other
+     * characters ("R1" → 1, "X2" → 2); 0 if there are no digits.
+     */
+    int digits(int i) {
+        int v = 0;
+        boolean neg = false, any = false;
+        for (int k = start[i]; k < end[i]; k++) {
+            char c = line.charAt(k);
+            if (c >= '0' && c <= '9') { v = v * 10 + (c - '0'); any = true; }
+            else if (c == '-') neg = true;
+        }
+        if (!any) return 0;
+        return neg ? -v : v;
+    }
+
+    /* -----------------------------------------------------------
+     * Helper Functions
+     * ----------------------------------------------------------- */
+
+    private static boolean isSeparator(char c) {
+        return c <= ' ' || c == ',';
+    }
+
+    private int skipBlank(int pos, int stop) {
+        while (pos < stop && line.charAt(pos) <= ' ') pos++;
+        return pos;
+    }
+
+    private void add(int a, int b) {
+        if (count == kind.length) {
+            int n = count * 2;
+            kind = Arrays.copyOf(kind, n);
+            start = Arrays.copyOf(start, n);
+            end = Arrays.copyOf(end, n);
+            value = Arrays.copyOf(value, n);
+        }
+        start[count] = a;
+        end[count] = b;
+        kind[count] = scanNumber(a, b) ? NUMBER : WORD;
+        count++;
+    }
+
+    // Try to read line[a, b) as a number into value[count]
+    private boolean scanNumber(int a, int b) {
+        long v = NumberScanner.literal(line, a, b);
+        if (v == NumberScanner.NONE) return false;
+        value[count] = (int) v;
+        return true;
+    }
+}
@@ -0,0 +1,123 @@
+package Assembler;
+
+import BasicMachine.Memory_Module.LoadHeader;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * ListingWriter.java
+ *
+ * Writes output.lst and load.ld for an AssemblyResult.  When the
+ * program names an entry point, both start with a LoadHeader line.
+ *
+ * The image is walked once in address order, merging the emitted words
+ * with the LOC lines.  Octal digits are formatted straight into one
+ * reusable char buffer, and each finished line goes out through a single
+ * large buffered writer, so there is no printf / String.format per word.
+ */
+final class ListingWriter implements Closeable {
+    private static final int BUFFER_CHARS = 1 << 16;
+    private static final String NL = System.lineSeparator();
+    private static final String LOC_INDENT = "              ";
+
+    private final Writer out;
+    private final char[] line = new char[14];   // "AAAAAA WWWWWW "
+
+    private ListingWriter(String outFile) throws IOException {
+        this.out = new BufferedWriter(new OutputStreamWriter(
+                Files.newOutputStream(Paths.get(outFile)), StandardCharsets.UTF_8), BUFFER_CHARS);
+    }
+
+    /* -----------------------------------------------------------
+     * Listing File
+     * -----------------------------------------------------------
+     * Format:
+     *   <address in octal> <machine code in octal> <original source.src>
+     * with LOC lines printed (indented) before the word at their address.
+     */
+    static void writeListing(String outFile, int[] words, BitSet used, Map<Integer, String> sourceMap,
+                             Map<Integer, String> locMap, int entry) throws IOException {
+        try (ListingWriter w = new ListingWriter(outFile)) {
+            w.header(entry, true);
+            Iterator<Map.Entry<Integer, String>> locs = locMap.entrySet().iterator();
+            Iterator<Map.Entry<Integer, String>> srcs = sourceMap.entrySet().iterator();
+            Map.Entry<Integer, String> loc = locs.hasNext() ? locs.next() : null;
+            Map.Entry<Integer, String> src = srcs.hasNext() ? srcs.next() : null;
+
+            int addr = used.nextSetBit(0);
+            while (addr >= 0 || loc != null) {
+                // LOC lines at or before the next word come first
+                if (loc != null && (addr < 0 || loc.getKey() <= addr)) {
+                    w.out.write(LOC_INDENT);
+                    w.out.write(loc.getValue());
+                    w.out.write(NL);
+                    loc = locs.hasNext() ? locs.next() : null;
+                    continue;
+                }
+
+                while (src != null && src.getKey() < addr) src = srcs.hasNext() ? srcs.next() : null;
+                // No source kept at all (Assembler.setKeepSource(false)): leave the column empty
+                String text = (src != null && src.getKey() == addr) ? src.getValue()
+                        : sourceMap.isEmpty() ? "" : "null";
+
+                w.word(addr, words[addr], true);
+                w.out.write(text);
+                w.out.write(NL);
+                addr = used.nextSetBit(addr + 1);
+            }
+        }
+    }
+
+    /* -----------------------------------------------------------
+     * Load File
+     * -----------------------------------------------------------
+     * Format:
+     *   [START <entry point in octal>]
+     *   <address in octal> <machine code in octal>
+     * (no newline after the last line)
+     */
+    static void writeLoadFile(String outFile, int[] words, BitSet used, int entry) throws IOException {
+        try (ListingWriter w = new ListingWriter(outFile)) {
+            w.header(entry, !used.isEmpty());
+            for (int addr = used.nextSetBit(0); addr >= 0; ) {
+                int next = used.nextSetBit(addr + 1);
+                w.word(addr, words[addr], false);
+                if (next >= 0) w.out.write(NL);
+                addr = next;
+            }
+        }
+    }
+
+    // The entry point line, if there is one, and a newline if more lines follow
+    private void header(int entry, boolean more) throws IOException {
+        if (entry < 0) return;
+        out.write(LoadHeader.line(entry));
+        if (more) out.write(NL);
+    }
+
+    // Write "AAAAAA WWWWWW" (plus a trailing space for listings)
+    private void word(int addr, int value, boolean trailingSpace) throws IOException {
+        octal6(addr, 0);
+        line[6] = ' ';
+        octal6(value, 7);
+        line[13] = ' ';
+        out.write(line, 0, trailingSpace ? 14 : 13);
+    }
+
+    // 6-digit octal of the low 16 bits into line[at..at+5]; the assembler keeps addresses within 16 bits
+    private void octal6(int value, int at) {
+        int v = value & 0xFFFF;
+        for (int k = at + 5; k >= at; k--) {
+            line[k] = (char) ('0' + (v & 7));
+            v >>>= 3;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
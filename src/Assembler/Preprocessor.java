@@ -0,0 +1,324 @@
+package Assembler;
+
+import BasicMachine.CPU_Module.InstructionSet;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Preprocessor.java
+ *
+ * Macro and include stage that runs in front of the assembler.
+ *
+ * Syntax:
+ *   MACRO name [param, param ...]     ; or:  name MACRO [params]
+ *       ... body lines, params are replaced by the call's arguments ...
+ *   ENDM
+ *
+ *   [label:] name arg, arg ...        ; expands the body in place
+ *   INCLUDE file.src                  ; path relative to the including file
+ *
+ * Macro names are case-insensitive and may not shadow an instruction.
+ * Macros may call other macros; labels inside a body are ordinary
+ * global labels, so a macro that defines one can only be used once.
+ *
+ * Caching (per build, cleared by reset()):
+ *   - expansions : the fully expanded body for each (macro, arguments)
+ *                  tuple, so repeated calls skip the substitution work
+ *   - includes   : the preprocessed lines of each included file, so a
+ *                  file included many times is read and parsed once
+ *   Redefining a macro drops both caches, since any cached expansion
+ *   (also of a macro that calls it) may hold the old body.
+ *
+ * Lines are handed to a LineSink already lexed into the shared Lexer,
+ * so the assembler does not lex them a second time.
+ */
+final class Preprocessor {
+
+    /** Receives each output line; the line is already lexed into the shared Lexer. */
+    interface LineSink {
+        void accept(String line) throws IOException;
+    }
+
+    private static final int MAX_DEPTH = 32;
+
+    private static final class Macro {
+        final String name;
+        final String[] params;
+        final List<String> body = new ArrayList<>();
+
+        Macro(String name, String[] params) {
+            this.name = name;
+            this.params = params;
+        }
+    }
+
+    private final Lexer lx;
+    // Macros by name, open addressing on a case-insensitive hash, so a
+    // call can be looked up by its slice of the line without a String
+    private Macro[] macros = new Macro[16];
+    private int macroCount;
+    private final Map<String, List<String>> expansions = new HashMap<>();
+    private final Map<Path, List<String>> includes = new HashMap<>();
+    private final Set<Path> including = new HashSet<>();
+    private Macro recording;   // macro whose body is being read, or null
+
+    Preprocessor(Lexer lx) {
+        this.lx = lx;
+    }
+
+    /** Forget macros and caches from the previous build. */
+    void reset() {
+        Arrays.fill(macros, null);
+        macroCount = 0;
+        expansions.clear();
+        includes.clear();
+        including.clear();
+        recording = null;
+    }
+
+    /** Preprocess a reader; INCLUDE paths are resolved against baseDir. */
+    void process(BufferedReader in, Path baseDir, LineSink sink) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) processLine(line, baseDir, sink);
+        finish();
+    }
+
+    /** Preprocess lines that are already in memory into a new list. */
+    List<String> expand(List<String> lines, Path baseDir) throws IOException {
+        List<String> out = new ArrayList<>(lines.size());
+        for (String line : lines) processLine(line, baseDir, out::add);
+        finish();
+        return out;
+    }
+
+    /* -----------------------------------------------------------
+     * Line Processing
+     * ----------------------------------------------------------- */
+
+    private void processLine(String line, Path baseDir, LineSink sink) throws IOException {
+        if (!lx.lex(line)) return;   // blank / comment only
+        int n = lx.count();
+
+        // Inside a definition: collect the body until ENDM
+        if (recording != null) {
+            if (n > 0 && lx.is(0, "ENDM")) {
+                if (define(recording) != null) {
+                    expansions.clear();
+                    includes.clear();
+                }
+                recording = null;
+            } else if (n > 0 && (lx.is(0, "MACRO") || (n > 1 && lx.is(1, "MACRO")))) {
+                throw new IllegalArgumentException("Nested MACRO definition in " + recording.name + ": " + line);
+            } else {
+                recording.body.add(line);
+            }
+            return;
+        }
+
+        if (n == 0) {
+            sink.accept(line);
+            return;
+        }
+
+        // MACRO name params  |  name MACRO params
+        if (lx.is(0, "MACRO")) {
+            startMacro(1);
+            return;
+        }
+        if (n > 1 && lx.is(1, "MACRO")) {
+            startMacro(0);
+            return;
+        }
+
+        if (lx.is(0, "INCLUDE")) {
+            include(line, baseDir, sink);
+            return;
+        }
+
+        Macro m = lookup();
+        if (m == null) {
+            sink.accept(line);
+            return;
+        }
+
+        // A label on the call line labels the first expanded word
+        String label = lx.label();
+        List<String> body = expansion(m, arguments(m, line), 0);
+        if (label != null) emit(label + ":", sink);
+        for (String b : body) emit(b, sink);
+    }
+
+    // Re-lex a generated line and pass it on
+    private void emit(String line, LineSink sink) throws IOException {
+        if (lx.lex(line)) sink.accept(line);
+    }
+
+    private void finish() {
+        if (recording != null) {
+            String name = recording.name;
+            recording = null;
+            throw new IllegalArgumentException("MACRO " + name + " has no ENDM");
+        }
+    }
+
+    /* -----------------------------------------------------------
+     * Macros
+     * ----------------------------------------------------------- */
+
+    private void startMacro(int nameToken) {
+        if (lx.count() <= nameToken || lx.isNumber(nameToken))
+            throw new IllegalArgumentException("MACRO needs a name: " + lx.line());
+        if (InstructionSet.opcodeOf(lx.line(), lx.start(nameToken), lx.end(nameToken)) >= 0)
+            throw new IllegalArgumentException("MACRO name shadows an instruction: " + lx.line());
+
+        String name = lx.text(nameToken).toUpperCase();
+        int first = 2;   // parameters follow "MACRO name" as well as "name MACRO"
+        String[] params = new String[Math.max(0, lx.count() - first)];
+        for (int k = 0; k < params.length; k++) params[k] = lx.text(first + k).toUpperCase();
+        recording = new Macro(name, params);
+    }
+
+    // Macro named by token 0 of the current line, or null
+    private Macro lookup() {
+        if (macroCount == 0) return null;
+        if (InstructionSet.opcodeOf(lx.line(), lx.start(0), lx.end(0)) >= 0) return null;
+        return macros[find(lx.line(), lx.start(0), lx.end(0))];
+    }
+
+    // Slot of the macro named s[start, end) (any case), or the empty slot where it would go
+    private int find(String s, int start, int end) {
+        int h = 0;
+        for (int k = start; k < end; k++) h = 31 * h + Character.toUpperCase(s.charAt(k));
+        int mask = macros.length - 1;
+        for (int slot = (h ^ h >>> 16) & mask; ; slot = (slot + 1) & mask) {
+            Macro m = macros[slot];
+            if (m == null || m.name.length() == end - start && m.name.regionMatches(true, 0, s, start, end - start))
+                return slot;
+        }
+    }
+
+    // Store a finished definition; returns the one it replaces, or null
+    private Macro define(Macro m) {
+        int slot = find(m.name, 0, m.name.length());
+        Macro old = macros[slot];
+        macros[slot] = m;
+        if (old == null && ++macroCount * 2 > macros.length) {
+            Macro[] all = macros;
+            macros = new Macro[all.length * 2];
+            for (Macro e : all) if (e != null) macros[find(e.name, 0, e.name.length())] = e;
+        }
+        return old;
+    }
+
+    private String[] arguments(Macro m, String line) {
+        int given = lx.count() - 1;
+        if (given != m.params.length)
+            throw new IllegalArgumentException("Macro " + m.name + " expects " + m.params.length
+                    + " argument(s), got " + given + ": " + line);
+        String[] args = new String[given];
+        for (int k = 0; k < given; k++) args[k] = lx.text(k + 1);
+        return args;
+    }
+
+    // Fully expanded body for (macro, args), memoized
+    private List<String> expansion(Macro m, String[] args, int depth) {
+        if (depth > MAX_DEPTH) throw new IllegalArgumentException("Macro expansion too deep in " + m.name);
+
+        String key = m.name + '\u0000' + String.join("\u0000", args);
+        List<String> cached = expansions.get(key);
+        if (cached != null) return cached;
+
+        List<String> out = new ArrayList<>();
+        for (String raw : m.body) {
+            String line = substitute(raw, m.params, args);
+            if (!lx.lex(line) || lx.count() == 0) {
+                if (lx.label() != null) out.add(line);
+                continue;
+            }
+            if (lx.is(0, "INCLUDE"))
+                throw new IllegalArgumentException("INCLUDE is not allowed inside MACRO " + m.name);
+
+            Macro inner = lookup();
+            if (inner == null) {
+                out.add(line);
+                continue;
+            }
+            String label = lx.label();
+            String[] innerArgs = arguments(inner, line);
+            if (label != null) out.add(label + ":");
+            out.addAll(expansion(inner, innerArgs, depth + 1));
+        }
+
+        List<String> result = Collections.unmodifiableList(out);
+        expansions.put(key, result);
+        return result;
+    }
+
+    // Replace whole-word parameter names (any case) before the comment
+    private static String substitute(String line, String[] params, String[] args) {
+        if (params.length == 0) return line;
+        int stop = line.indexOf(';');
+        if (stop < 0) stop = line.length();
+
+        StringBuilder sb = null;
+        int copied = 0;
+        int pos = 0;
+        while (pos < stop) {
+            char c = line.charAt(pos);
+            if (!Character.isLetterOrDigit(c) && c != '_') {
+                pos++;
+                continue;
+            }
+            int a = pos;
+            while (pos < stop && (Character.isLetterOrDigit(line.charAt(pos)) || line.charAt(pos) == '_')) pos++;
+            if (Character.isDigit(c)) continue;   // numbers are never parameters
+
+            for (int k = 0; k < params.length; k++) {
+                if (params[k].length() == pos - a && line.regionMatches(true, a, params[k], 0, pos - a)) {
+                    if (sb == null) sb = new StringBuilder(line.length() + 16);
+                    sb.append(line, copied, a).append(args[k]);
+                    copied = pos;
+                    break;
+                }
+            }
+        }
+        if (sb == null) return line;
+        return sb.append(line, copied, line.length()).toString();
+    }
+
+    /* -----------------------------------------------------------
+     * Includes
+     * ----------------------------------------------------------- */
+
+    private void include(String line, Path baseDir, LineSink sink) throws IOException {
+        if (lx.count() < 2) throw new IllegalArgumentException("INCLUDE needs a file name: " + line);
+        String name = lx.text(1);
+        if (name.length() >= 2 && name.startsWith("\"") && name.endsWith("\"")) name = name.substring(1, name.length() - 1);
+
+        Path file = baseDir.resolve(name).toAbsolutePath().normalize();
+        List<String> cached = includes.get(file);
+        if (cached != null) {
+            for (String l : cached) emit(l, sink);
+            return;
+        }
+
+        if (!including.add(file)) throw new IOException("Recursive INCLUDE of " + file);
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(file)) {
+            Path dir = file.getParent();
+            String l;
+            while ((l = in.readLine()) != null) {
+                processLine(l, dir, out -> {
+                    lines.add(out);
+                    sink.accept(out);
+                });
+            }
+            finish();
+        } finally {
+            including.remove(file);
+        }
+        includes.put(file, lines);
+    }
+}
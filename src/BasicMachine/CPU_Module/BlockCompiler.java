@@ -0,0 +1,335 @@
+package BasicMachine.CPU_Module;
+
+import BasicMachine.Memory_Module.Cache;
+import BasicMachine.Memory_Module.Memory;
+
+/**
+ * BlockCompiler.java
+ * -------------------
+ * Second execution tier for MachineCore's headless run loop.
+ *
+ * The interpreter counts how often it enters each block leader (the
+ * address run() starts at, and every address reached by a control
+ * transfer).  Once a leader passes the threshold, the straight-line run
+ * of instructions starting there is compiled into a CompiledBlock: one
+ * small closure per instruction with its fields (register, address,
+ * index register) bound as constants.  A block runs without fetching or
+ * decoding its words and updates PC once, before its last instruction.
+ *
+ * The loads, stores and immediate/memory arithmetic (LDR, STR, LDA,
+ * LDX, STX, AMR, SMR, AIR, SIR) and the transfers (JZ, JNE, JCC, JMA,
+ * JSR, RFS, SOB, JGE) get their own closure for direct and indexed
+ * addressing.  Such a transfer is compiled as the block's last
+ * instruction, so a loop body and the branch that closes it run as one
+ * block.  Indirect forms and the other instructions call the
+ * interpreter's handler, and any other transfer, HLT or TRAP ends the
+ * block before it and is interpreted.
+ *
+ * JitBenchmark (tests/) times the same loops with the tier on and off.
+ *
+ * Any memory write inside a block's address range invalidates it, and
+ * a block that overwrites itself stops right after the store, so the
+ * interpreter picks up the new code.
+ *
+ * Per-address bookkeeping (blocks, entry counts, coverage) is kept in
+ * memory-sized pages created when code in them first runs.
+ */
+final class BlockCompiler {
+    static final int MAX_BLOCK = 64;
+    static final int DEFAULT_THRESHOLD = 16;
+    private static final int BACKOFF = -1024;   // heat after a leader that cannot be compiled
+
+    /** One compiled instruction, working on the register file. */
+    interface Op {
+        void exec(int[] rf);
+    }
+
+    /** A compiled straight-line block. */
+    static final class CompiledBlock {
+        final int start;
+        final int[] words;     // original instruction words, for MAR/MBR/IR
+        final Op[] ops;
+        final boolean open;    // stopped at MAX_BLOCK, next instruction is straight-line too
+        final boolean transfer; // the last instruction is a compiled transfer
+        final int addressMask; // PC wraps like the interpreter's
+        boolean valid = true;
+
+        CompiledBlock(int start, int[] words, Op[] ops, boolean open, boolean transfer, int addressMask) {
+            this.start = start;
+            this.words = words;
+            this.ops = ops;
+            this.open = open;
+            this.transfer = transfer;
+            this.addressMask = addressMask;
+        }
+
+        int length() { return ops.length; }
+
+        /** True if the instruction after the block starts a new block. */
+        boolean endsAtLeader() { return open || transfer; }
+
+        /** True if address is inside the block after its first instruction. */
+        boolean spans(int address) {
+            return address > start && address < start + ops.length;
+        }
+
+        /**
+         * Run the block and leave PC after the last instruction executed
+         * (or at the target of its closing transfer).  Returns the number
+         * of instructions executed.  Each fetch is reported to cache, if
+         * there is one.
+         */
+        int execute(int[] rf, Cache cache) {
+            final Op[] ops = this.ops;
+            final int last = ops.length - 1;
+            for (int k = 0; k < last; k++) {
+                if (cache != null) cache.read(start + k);
+                ops[k].exec(rf);
+                if (!valid) {   // the block wrote over itself
+                    rf[Registers.SLOT_PC] = (start + k + 1) & addressMask;
+                    return k + 1;
+                }
+            }
+            // PC is set first, as after a fetch, so a transfer can replace it
+            if (cache != null) cache.read(start + last);
+            rf[Registers.SLOT_PC] = (start + ops.length) & addressMask;
+            ops[last].exec(rf);
+            return ops.length;
+        }
+    }
+
+    // Bookkeeping for one memory page
+    private static final class Page {
+        final CompiledBlock[] blocks = new CompiledBlock[Memory.PAGE_WORDS];  // by start address
+        final int[] heat = new int[Memory.PAGE_WORDS];                        // leader entry counts
+        final int[] coverage = new int[Memory.PAGE_WORDS];                    // live blocks covering each address
+    }
+
+    private static final int OFFSET_MASK = Memory.PAGE_WORDS - 1;
+
+    private final MachineCore core;
+    private final int size;
+    private final Page[] pages;
+    private int threshold = DEFAULT_THRESHOLD;
+    private int live = 0;
+    private int compiled = 0;
+    private int invalidated = 0;
+
+    BlockCompiler(MachineCore core, Memory memory) {
+        this.core = core;
+        this.size = memory.size();
+        this.pages = new Page[(size + OFFSET_MASK) >>> Memory.PAGE_BITS];
+    }
+
+    private Page page(int address) {
+        Page pg = pages[address >>> Memory.PAGE_BITS];
+        if (pg == null) pg = pages[address >>> Memory.PAGE_BITS] = new Page();
+        return pg;
+    }
+
+    private CompiledBlock blockAt(int address) {
+        Page pg = pages[address >>> Memory.PAGE_BITS];
+        return pg == null ? null : pg.blocks[address & OFFSET_MASK];
+    }
+
+    void setThreshold(int threshold) {
+        if (threshold < 1) throw new IllegalArgumentException("JIT threshold must be at least 1: " + threshold);
+        this.threshold = threshold;
+    }
+
+    int blocksCompiled() { return compiled; }
+    int blocksInvalidated() { return invalidated; }
+
+    /** True if the instruction ends a block (control flow, halt, fault). */
+    static boolean endsBlock(MachineCore.Decoded d) {
+        if (!d.legal()) return true;
+        return switch (d.opcode) {
+            case InstructionSet.LDR, InstructionSet.STR, InstructionSet.LDA,
+                 InstructionSet.LDX, InstructionSet.STX,
+                 InstructionSet.AMR, InstructionSet.SMR, InstructionSet.AIR, InstructionSet.SIR,
+                 InstructionSet.MLT, InstructionSet.DVD, InstructionSet.TRR,
+                 InstructionSet.AND, InstructionSet.ORR, InstructionSet.NOT,
+                 InstructionSet.SRC, InstructionSet.RRC,
+                 InstructionSet.IN, InstructionSet.OUT, InstructionSet.CHK -> false;
+            default -> true;
+        };
+    }
+
+    /**
+     * Entering a block at pc: the compiled block, or null to interpret.
+     * Counts the entry and compiles the block once it is hot.
+     */
+    CompiledBlock enter(int pc) {
+        if (pc < 0 || pc >= size) return null;
+        Page pg = page(pc);
+        CompiledBlock b = pg.blocks[pc & OFFSET_MASK];
+        if (b != null) return b;
+        if (++pg.heat[pc & OFFSET_MASK] < threshold) return null;
+        return compile(pc);
+    }
+
+    /* -----------------------------------------------------------
+     * Compilation
+     * ----------------------------------------------------------- */
+
+    private CompiledBlock compile(int start) {
+        int[] words = new int[MAX_BLOCK];
+        Op[] ops = new Op[MAX_BLOCK];
+        int n = 0;
+        int a = start;
+        boolean transfer = false;
+        while (n < MAX_BLOCK && a < size) {
+            MachineCore.Decoded d = core.lookup(a);
+            if (endsBlock(d)) {
+                // A transfer with a compiled form closes the block
+                Op op = specializeTransfer(d);
+                if (op != null) {
+                    words[n] = d.word;
+                    ops[n++] = op;
+                    a++;
+                    transfer = true;
+                }
+                break;
+            }
+            words[n] = d.word;
+            ops[n] = specialize(d);
+            n++;
+            a++;
+        }
+        if (n == 0) {
+            page(start).heat[start & OFFSET_MASK] = BACKOFF;
+            return null;
+        }
+
+        boolean open = !transfer && n == MAX_BLOCK && a < size;
+        CompiledBlock b = new CompiledBlock(start, java.util.Arrays.copyOf(words, n),
+                java.util.Arrays.copyOf(ops, n), open, transfer, core.addressMask());
+        page(start).blocks[start & OFFSET_MASK] = b;
+        for (int k = start; k < start + n; k++) page(k).coverage[k & OFFSET_MASK]++;
+        live++;
+        compiled++;
+        return b;
+    }
+
+    // Closure for one instruction with its operands bound
+    private Op specialize(MachineCore.Decoded d) {
+        final MachineCore core = this.core;
+        final int reg = Registers.SLOT_R0 + d.r;
+        final int addr = d.address;
+        final int xr = Registers.SLOT_X1 + d.ix - 1;
+
+        if (d.i == 0) {
+            switch (d.opcode) {
+                case InstructionSet.LDR:
+                    if (d.ix == 0) return rf -> rf[reg] = core.load(addr);
+                    return rf -> rf[reg] = core.load(addr + rf[xr]);
+                case InstructionSet.STR:
+                    if (d.ix == 0) return rf -> core.store(addr, rf[reg]);
+                    return rf -> core.store(addr + rf[xr], rf[reg]);
+                case InstructionSet.LDA:
+                    if (d.ix == 0) return rf -> rf[reg] = addr;
+                    return rf -> rf[reg] = (addr + rf[xr]) & Registers.WORD_MASK;
+                case InstructionSet.LDX:   // the IX field names the register, the address is not indexed
+                    return rf -> rf[xr] = core.load(addr);
+                case InstructionSet.STX:
+                    return rf -> core.store(addr, rf[xr]);
+                case InstructionSet.AMR:
+                    if (d.ix == 0) return rf -> core.arith(reg, (short) rf[reg] + (short) core.load(addr));
+                    return rf -> core.arith(reg, (short) rf[reg] + (short) core.load(addr + rf[xr]));
+                case InstructionSet.SMR:
+                    if (d.ix == 0) return rf -> core.arith(reg, (short) rf[reg] - (short) core.load(addr));
+                    return rf -> core.arith(reg, (short) rf[reg] - (short) core.load(addr + rf[xr]));
+                case InstructionSet.AIR:
+                    return rf -> core.arith(reg, (short) rf[reg] + addr);
+                case InstructionSet.SIR:
+                    return rf -> core.arith(reg, (short) rf[reg] - addr);
+                default:
+                    break;
+            }
+        }
+        return rf -> core.decodeAndExecute(d);   // generic path
+    }
+
+    // Closure for a direct or indexed transfer, or null to leave it to the interpreter
+    private Op specializeTransfer(MachineCore.Decoded d) {
+        if (!d.legal() || d.i != 0) return null;
+        final int reg = Registers.SLOT_R0 + d.r;
+        final int mask = core.addressMask();
+        final int target = d.address & mask;
+        final int addr = d.address;
+        final int xr = Registers.SLOT_X1 + d.ix - 1;
+        final int pc = Registers.SLOT_PC;
+        final boolean direct = d.ix == 0;
+
+        switch (d.opcode) {
+            case InstructionSet.JZ:
+                if (direct) return rf -> { if (rf[reg] == 0) rf[pc] = target; };
+                return rf -> { if (rf[reg] == 0) rf[pc] = (addr + rf[xr]) & mask; };
+            case InstructionSet.JNE:
+                if (direct) return rf -> { if (rf[reg] != 0) rf[pc] = target; };
+                return rf -> { if (rf[reg] != 0) rf[pc] = (addr + rf[xr]) & mask; };
+            case InstructionSet.JCC: {
+                final int bit = d.r;
+                if (direct) return rf -> { if ((rf[Registers.SLOT_CC] >> bit & 1) != 0) rf[pc] = target; };
+                return rf -> { if ((rf[Registers.SLOT_CC] >> bit & 1) != 0) rf[pc] = (addr + rf[xr]) & mask; };
+            }
+            case InstructionSet.JMA:
+                if (direct) return rf -> rf[pc] = target;
+                return rf -> rf[pc] = (addr + rf[xr]) & mask;
+            case InstructionSet.JSR: {
+                final int r3 = Registers.SLOT_R0 + 3;
+                if (direct) return rf -> { rf[r3] = rf[pc]; rf[pc] = target; };
+                return rf -> { int ea = addr + rf[xr]; rf[r3] = rf[pc]; rf[pc] = ea & mask; };
+            }
+            case InstructionSet.RFS: {
+                final int r0 = Registers.SLOT_R0, r3 = Registers.SLOT_R0 + 3;
+                return rf -> { rf[r0] = addr; rf[pc] = rf[r3] & mask; };
+            }
+            case InstructionSet.SOB:
+                if (direct) return rf -> {
+                    int v = rf[reg] = (rf[reg] - 1) & Registers.WORD_MASK;
+                    if ((short) v > 0) rf[pc] = target;
+                };
+                return rf -> {
+                    int v = rf[reg] = (rf[reg] - 1) & Registers.WORD_MASK;
+                    if ((short) v > 0) rf[pc] = (addr + rf[xr]) & mask;
+                };
+            case InstructionSet.JGE:
+                if (direct) return rf -> { if ((short) rf[reg] >= 0) rf[pc] = target; };
+                return rf -> { if ((short) rf[reg] >= 0) rf[pc] = (addr + rf[xr]) & mask; };
+            default:
+                return null;
+        }
+    }
+
+    /* -----------------------------------------------------------
+     * Invalidation
+     * ----------------------------------------------------------- */
+
+    /** Memory in [from, to) changed: drop every block that covers it. */
+    void invalidate(int from, int to) {
+        if (live == 0) return;
+        from = Math.max(from, 0);
+        to = Math.min(to, size);
+        for (int a = from; a < to; a++) {
+            Page pg = pages[a >>> Memory.PAGE_BITS];
+            if (pg == null) {
+                a |= OFFSET_MASK;   // nothing compiled in this page
+                continue;
+            }
+            if (pg.coverage[a & OFFSET_MASK] == 0) continue;
+            for (int s = Math.max(0, a - MAX_BLOCK + 1); s <= a; s++) {
+                CompiledBlock b = blockAt(s);
+                if (b != null && s + b.length() > a) kill(b);
+            }
+        }
+    }
+
+    private void kill(CompiledBlock b) {
+        b.valid = false;
+        page(b.start).blocks[b.start & OFFSET_MASK] = null;
+        for (int k = b.start; k < b.start + b.length(); k++) page(k).coverage[k & OFFSET_MASK]--;
+        live--;
+        invalidated++;
+    }
+}
@@ -0,0 +1,30 @@
+package BasicMachine.CPU_Module;
+
+/**
+ * Device.java
+ * ------------
+ * An I/O device attached to MachineCore by device id (0–31), used by
+ * IN, OUT and CHK.  Device 0 is the keyboard and device 1 the printer
+ * by convention.  Every method has a harmless default, so a device only
+ * implements the direction it supports.
+ */
+public interface Device {
+
+    /** IN: next input word (0 if nothing is available). */
+    default int read() { return 0; }
+
+    /** OUT: accept an output word. */
+    default void write(int value) {}
+
+    /** CHK: device status word (1 = ready). */
+    default int status() { return 1; }
+
+    /** Printer that writes each word as a character to standard output. */
+    Device CONSOLE_PRINTER = new Device() {
+        @Override
+        public void write(int value) {
+            System.out.print((char) value);
+            System.out.flush();
+        }
+    };
+}
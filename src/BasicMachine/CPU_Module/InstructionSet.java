@@ -1,23 +1,147 @@
 package BasicMachine.CPU_Module;
 
-import java.util.HashMap;
-
 /**
  * InstructionSet.java
  * --------------------
- * Provides opcode–mnemonic mapping for debugging and UI display.
+ * The single ISA table for the Basic Machine, shared by the assembler,
+ * the CPU decoder and the debugging / UI display.
+ *
+ * Two views of the same table:
+ *  - BY_OPCODE : dense 64-entry array, opcode → mnemonic (null = unused)
+ *  - SLOTS     : 128-entry perfect-hash table, mnemonic → opcode
+ *
+ * The mnemonic hash uses a fixed SEED chosen so that every mnemonic in
+ * the table lands in its own slot; a lookup is one hash, one array read
+ * and one character compare, with no boxing or HashMap involved.  If a
+ * new mnemonic ever collides, class initialisation fails and a new SEED
+ * has to be picked.
+ *
+ * Opcodes follow the CSCI 6461 numbering (octal in the comments).
  */
 public class InstructionSet {
-    private static final HashMap<Integer, String> opMap = new HashMap<>();
+
+    // Miscellaneous
+    public static final int HLT   = 0;     // 00  Halt program execution
+    public static final int TRAP  = 24;    // 30  Software interrupt (trap)
+
+    // Load/Store
+    public static final int LDR   = 1;     // 01  Load register from memory
+    public static final int STR   = 2;     // 02  Store register to memory
+    public static final int LDA   = 3;     // 03  Load register with address
+    public static final int LDX   = 33;    // 41  Load index register
+    public static final int STX   = 34;    // 42  Store index register
+
+    // Transfer
+    public static final int JZ    = 8;     // 10  Jump if zero
+    public static final int JNE   = 9;     // 11  Jump if not equal
+    public static final int JCC   = 10;    // 12  Jump if condition code
+    public static final int JMA   = 11;    // 13  Unconditional jump
+    public static final int JSR   = 12;    // 14  Jump to subroutine
+    public static final int RFS   = 13;    // 15  Return from subroutine
+    public static final int SOB   = 14;    // 16  Subtract one and branch
+    public static final int JGE   = 15;    // 17  Jump if greater or equal
+
+    // Arithmetic/Logical
+    public static final int AMR   = 4;     // 04  Add memory to register
+    public static final int SMR   = 5;     // 05  Subtract memory from register
+    public static final int AIR   = 6;     // 06  Add immediate to register
+    public static final int SIR   = 7;     // 07  Subtract immediate from register
+    public static final int MLT   = 56;    // 70  Multiply register by register
+    public static final int DVD   = 57;    // 71  Divide register by register
+    public static final int TRR   = 58;    // 72  Test register equality
+    public static final int AND   = 59;    // 73  Logical AND
+    public static final int ORR   = 60;    // 74  Logical OR
+    public static final int NOT   = 61;    // 75  Logical NOT
+
+    // Shift/Rotate
+    public static final int SRC   = 25;    // 31  Shift register by count
+    public static final int RRC   = 26;    // 32  Rotate register by count
+
+    // I/O
+    public static final int IN    = 49;    // 61  Input character to register
+    public static final int OUT   = 50;    // 62  Output character from register
+    public static final int CHK   = 51;    // 63  Check device status
+
+    // Floating-point & Vector
+    public static final int FADD  = 27;    // 33  Floating add
+    public static final int FSUB  = 28;    // 34  Floating subtract
+    public static final int VADD  = 29;    // 35  Vector add
+    public static final int VSUB  = 30;    // 36  Vector subtract
+    public static final int CNVRT = 31;    // 37  Convert integer <-> float
+    public static final int LDFR  = 40;    // 50  Load floating register
+    public static final int STFR  = 41;    // 51  Store floating register
+
+    /** Number of opcodes a 6-bit field can hold. */
+    public static final int OPCODE_COUNT = 64;
+
+    private static final String[] BY_OPCODE = new String[OPCODE_COUNT];
+
+    private static final int SEED = 305;
+    private static final int SLOT_MASK = 127;
+    private static final String[] SLOT_NAME = new String[SLOT_MASK + 1];
+    private static final int[] SLOT_OPCODE = new int[SLOT_MASK + 1];
 
     static {
-        opMap.put(1, "LDR");
-        opMap.put(2, "STR");
-        opMap.put(33, "HLT");
+        define("HLT", HLT);   define("TRAP", TRAP);
+        define("LDR", LDR);   define("STR", STR);   define("LDA", LDA);
+        define("LDX", LDX);   define("STX", STX);
+        define("JZ", JZ);     define("JNE", JNE);   define("JCC", JCC);
+        define("JMA", JMA);   define("JSR", JSR);   define("RFS", RFS);
+        define("SOB", SOB);   define("JGE", JGE);
+        define("AMR", AMR);   define("SMR", SMR);   define("AIR", AIR);
+        define("SIR", SIR);
+        define("MLT", MLT);   define("DVD", DVD);   define("TRR", TRR);
+        define("AND", AND);   define("ORR", ORR);   define("NOT", NOT);
+        define("SRC", SRC);   define("RRC", RRC);
+        define("IN", IN);     define("OUT", OUT);   define("CHK", CHK);
+        define("FADD", FADD); define("FSUB", FSUB); define("VADD", VADD);
+        define("VSUB", VSUB); define("CNVRT", CNVRT);
+        define("LDFR", LDFR); define("STFR", STFR);
+    }
+
+    private static void define(String mnemonic, int opcode) {
+        if (BY_OPCODE[opcode] != null)
+            throw new IllegalStateException("Opcode " + opcode + " used by both " + BY_OPCODE[opcode] + " and " + mnemonic);
+        int slot = slot(mnemonic, 0, mnemonic.length());
+        if (SLOT_NAME[slot] != null)
+            throw new IllegalStateException("Mnemonic hash collision: " + SLOT_NAME[slot] + " / " + mnemonic + ", pick a new SEED");
+        BY_OPCODE[opcode] = mnemonic;
+        SLOT_NAME[slot] = mnemonic;
+        SLOT_OPCODE[slot] = opcode;
+    }
+
+    // Case-insensitive hash of s[start, end)
+    private static int slot(CharSequence s, int start, int end) {
+        int h = 0;
+        for (int k = start; k < end; k++) h = h * SEED + (s.charAt(k) & 0x5F);
+        h ^= h >>> 5;
+        return h & SLOT_MASK;
     }
 
     /** Return the mnemonic string for a given opcode. */
     public static String getMnemonic(int opcode) {
-        return opMap.getOrDefault(opcode, "UNKNOWN");
+        String m = (opcode >= 0 && opcode < OPCODE_COUNT) ? BY_OPCODE[opcode] : null;
+        return m != null ? m : "UNKNOWN";
+    }
+
+    /** True if the opcode is part of the instruction set. */
+    public static boolean isDefined(int opcode) {
+        return opcode >= 0 && opcode < OPCODE_COUNT && BY_OPCODE[opcode] != null;
+    }
+
+    /** Opcode for a mnemonic (any case), or -1 if it is not an instruction. */
+    public static int opcodeOf(CharSequence mnemonic) {
+        return opcodeOf(mnemonic, 0, mnemonic.length());
+    }
+
+    /** Opcode for the mnemonic in s[start, end) (any case), or -1. */
+    public static int opcodeOf(CharSequence s, int start, int end) {
+        int slot = slot(s, start, end);
+        String name = SLOT_NAME[slot];
+        if (name == null || name.length() != end - start) return -1;
+        for (int k = 0; k < name.length(); k++) {
+            if (Character.toUpperCase(s.charAt(start + k)) != name.charAt(k)) return -1;
+        }
+        return SLOT_OPCODE[slot];
     }
 }
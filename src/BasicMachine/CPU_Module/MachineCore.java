@@ -1,7 +1,10 @@
 package BasicMachine.CPU_Module;
 
+import BasicMachine.Memory_Module.Cache;
 import BasicMachine.Memory_Module.Memory;
 
+import java.util.function.Predicate;
+
 /**
  * MachineCore.java
  * -----------------
@@ -10,91 +13,653 @@ import BasicMachine.Memory_Module.Memory;
  * Integration:
  *  - Reads/writes through Memory_Module.
  *  - Provides public methods for Testing_Module and UI_Module.
+ *
+ * Decoded-instruction cache:
+ *  Each address that has been executed keeps its decoded fields in a
+ *  parallel array, so a loop body is decoded once rather than on every
+ *  pass.  Memory tells the core about every write, and written addresses
+ *  are dropped from the cache, so self-modifying code still sees the
+ *  new instruction.  The array is split into memory-sized pages that
+ *  are allocated when code in them first runs, so a large, mostly
+ *  empty memory does not cost a full-size cache.
+ *
+ * Tracing:
+ *  By default the core runs headless and prints nothing.  Attach a
+ *  TraceListener (e.g. TraceListener.PRINT_STATE) to observe execution,
+ *  optionally sampled every Nth instruction with setTraceInterval.
+ *
+ * Registers:
+ *  The core works on the primitive register file behind Registers.
+ *  The headless run loop skips the MAR/MBR/IR copies on each cycle and
+ *  writes them back only when it stops (halt), since nothing can look
+ *  at them in between; single steps always update them.
+ *
+ * Block tier:
+ *  In headless runs, hot straight-line blocks are handed to the
+ *  BlockCompiler and executed as compiled blocks (see BlockCompiler).
+ *  Traced runs and single steps always interpret.
+ *
+ * Batch execution:
+ *  run(), runCycles(n) and runUntil(...) share one inner loop that
+ *  only checks the cycle budget and the stop address per instruction.
+ *  A compiled block is used only when it fits in the remaining budget
+ *  and does not step over the stop address, so every stop is exact.
+ *  Predicates and trace listeners see each instruction, so those runs
+ *  interpret.
+ *
+ * Cache model:
+ *  An attached Cache (setCache) sees every instruction fetch and every
+ *  data read and write the program makes, including those in compiled
+ *  blocks.  It only counts hits and misses; values still come from
+ *  Memory.  Debugger reads (readMemory) bypass it.
+ *
+ * Dispatch:
+ *  Instructions are executed through HANDLERS, a dense 64-entry table
+ *  indexed by opcode.  The handler is looked up once, when a word is
+ *  decoded, and kept in the Decoded record.  Opcodes without a handler
+ *  (and illegal register fields) fault with MFR = ILLEGAL_OPCODE.
+ *
+ * Condition code bits (CC, numbered as in JCC's cc field):
+ *  0 OVERFLOW   1 UNDERFLOW   2 DIVZERO   3 EQUALORNOT
  */
-public class MachineCore {
+public class MachineCore implements MachineState {
     private final Memory memory;
     private final Registers regs;
+    private final int[] rf;            // regs' register file
     private boolean halted = false;
 
+    // Condition code bits
+    public static final int CC_OVERFLOW  = 1;
+    public static final int CC_UNDERFLOW = 1 << 1;
+    public static final int CC_DIVZERO   = 1 << 2;
+    public static final int CC_EQUAL     = 1 << 3;
+
+    // Machine fault codes (MFR)
+    public static final int FAULT_RESERVED_LOCATION = 1;
+    public static final int FAULT_ILLEGAL_TRAP      = 2;
+    public static final int FAULT_ILLEGAL_OPCODE    = 4;
+    public static final int FAULT_ILLEGAL_ADDRESS   = 8;
+
+    /** Executes one decoded instruction. */
+    interface Handler {
+        void execute(MachineCore core, Decoded d);
+    }
+
+    private static final Handler ILLEGAL = MachineCore::executeIllegal;
+    private static final Handler[] HANDLERS = new Handler[InstructionSet.OPCODE_COUNT];
+
+    static {
+        java.util.Arrays.fill(HANDLERS, ILLEGAL);
+        HANDLERS[InstructionSet.HLT]  = MachineCore::executeHLT;
+        HANDLERS[InstructionSet.TRAP] = MachineCore::executeTRAP;
+
+        HANDLERS[InstructionSet.LDR]  = MachineCore::executeLDR;
+        HANDLERS[InstructionSet.STR]  = MachineCore::executeSTR;
+        HANDLERS[InstructionSet.LDA]  = MachineCore::executeLDA;
+        HANDLERS[InstructionSet.LDX]  = MachineCore::executeLDX;
+        HANDLERS[InstructionSet.STX]  = MachineCore::executeSTX;
+
+        HANDLERS[InstructionSet.JZ]   = MachineCore::executeJZ;
+        HANDLERS[InstructionSet.JNE]  = MachineCore::executeJNE;
+        HANDLERS[InstructionSet.JCC]  = MachineCore::executeJCC;
+        HANDLERS[InstructionSet.JMA]  = MachineCore::executeJMA;
+        HANDLERS[InstructionSet.JSR]  = MachineCore::executeJSR;
+        HANDLERS[InstructionSet.RFS]  = MachineCore::executeRFS;
+        HANDLERS[InstructionSet.SOB]  = MachineCore::executeSOB;
+        HANDLERS[InstructionSet.JGE]  = MachineCore::executeJGE;
+
+        HANDLERS[InstructionSet.AMR]  = MachineCore::executeAMR;
+        HANDLERS[InstructionSet.SMR]  = MachineCore::executeSMR;
+        HANDLERS[InstructionSet.AIR]  = MachineCore::executeAIR;
+        HANDLERS[InstructionSet.SIR]  = MachineCore::executeSIR;
+        HANDLERS[InstructionSet.MLT]  = MachineCore::executeMLT;
+        HANDLERS[InstructionSet.DVD]  = MachineCore::executeDVD;
+        HANDLERS[InstructionSet.TRR]  = MachineCore::executeTRR;
+        HANDLERS[InstructionSet.AND]  = MachineCore::executeAND;
+        HANDLERS[InstructionSet.ORR]  = MachineCore::executeORR;
+        HANDLERS[InstructionSet.NOT]  = MachineCore::executeNOT;
+
+        HANDLERS[InstructionSet.SRC]  = MachineCore::executeSRC;
+        HANDLERS[InstructionSet.RRC]  = MachineCore::executeRRC;
+
+        HANDLERS[InstructionSet.IN]   = MachineCore::executeIN;
+        HANDLERS[InstructionSet.OUT]  = MachineCore::executeOUT;
+        HANDLERS[InstructionSet.CHK]  = MachineCore::executeCHK;
+    }
+
+    /** One pre-decoded instruction word. */
+    static final class Decoded {
+        final int word;
+        final int opcode;
+        final int r;
+        final int ix;
+        final int i;
+        final int address;
+        final Handler handler;
+
+        Decoded(int word) {
+            this.word    = word;
+            this.opcode  = (word >> 10) & 0x3F;
+            this.r       = (word >> 8) & 0x03;
+            this.ix      = (word >> 6) & 0x03;
+            this.i       = (word >> 5) & 0x01;
+            this.address =  word & 0x1F;
+            this.handler = legalFields(opcode, r, ix) ? HANDLERS[opcode] : ILLEGAL;
+        }
+
+        boolean legal() { return handler != ILLEGAL; }
+    }
+
+    // Register fields that the instruction cannot use
+    private static boolean legalFields(int opcode, int r, int ix) {
+        return switch (opcode) {
+            case InstructionSet.MLT, InstructionSet.DVD -> (r & 1) == 0 && (ix & 1) == 0;   // rx, ry ∈ {0, 2}
+            case InstructionSet.LDX, InstructionSet.STX -> ix != 0;
+            default -> true;
+        };
+    }
+
+    private final Device[] devices = new Device[32];
+
+    private final Decoded[][] decoded;   // [page][offset], null = not decoded
+    private final int addressMask;
+    private int decodeMisses = 0;
+
+    private final BlockCompiler jit;
+    private boolean jitEnabled = true;
+
+    private Cache cache;               // null = no cache model
+
+    private TraceListener tracer;      // null = headless
+    private int traceInterval = 1;
+    private int traceCountdown = 1;
+    private long instructionCount = 0;
+
     public MachineCore(Memory mem, Registers regs) {
         this.memory = mem;
         this.regs = regs;
+        this.rf = regs.file();
+        this.addressMask = regs.addressMask();
+        if (mem.size() - 1 > addressMask)
+            throw new IllegalArgumentException("Registers address " + (addressMask + 1) + " words but memory has "
+                    + mem.size() + "; use Registers.forMemory(size)");
+        this.decoded = new Decoded[(mem.size() + Memory.PAGE_WORDS - 1) >>> Memory.PAGE_BITS][];
+        this.jit = new BlockCompiler(this, mem);
+        mem.addWriteListener(this::invalidate);
+        devices[1] = Device.CONSOLE_PRINTER;
     }
 
     /** Run continuously until HLT. */
     public void run() {
-        while (!halted) runOneCycle();
+        execute(Long.MAX_VALUE, -1, null);
+    }
+
+    /** Run at most n instructions (stops early on HLT). */
+    public RunResult runCycles(long n) {
+        return execute(n, -1, null);
+    }
+
+    /**
+     * Run until PC reaches address (after at least one instruction,
+     * so a run can continue from a breakpoint) or the machine halts.
+     */
+    public RunResult runUntil(int address) {
+        return execute(Long.MAX_VALUE, address, null);
+    }
+
+    /** Run until the predicate holds after an instruction, or the machine halts. */
+    public RunResult runUntil(Predicate<MachineState> until) {
+        return execute(Long.MAX_VALUE, -1, until);
+    }
+
+    private RunResult execute(long limit, int breakpoint, Predicate<MachineState> until) {
+        if (tracer != null || until != null) {
+            // Observed: step by step
+            long n = 0;
+            while (true) {
+                if (halted) return new RunResult(n, RunResult.StopReason.HALTED);
+                if (n >= limit) return new RunResult(n, RunResult.StopReason.CYCLE_LIMIT);
+                if (n > 0 && rf[Registers.SLOT_PC] == breakpoint) return new RunResult(n, RunResult.StopReason.BREAKPOINT);
+                runOneCycle();
+                n++;
+                if (until != null && until.test(this)) {
+                    return new RunResult(n, halted ? RunResult.StopReason.HALTED : RunResult.StopReason.PREDICATE);
+                }
+            }
+        }
+
+        // Headless: no tracing checks, MAR/MBR/IR written back at the end
+        final int[] rf = this.rf;
+        int lastPc = -1;
+        int lastWord = 0;
+        long n = 0;
+        boolean leader = true;
+        RunResult.StopReason reason;
+        while (true) {
+            if (halted) { reason = RunResult.StopReason.HALTED; break; }
+            if (n >= limit) { reason = RunResult.StopReason.CYCLE_LIMIT; break; }
+            int pc = rf[Registers.SLOT_PC];
+            if (pc == breakpoint && n > 0) { reason = RunResult.StopReason.BREAKPOINT; break; }
+
+            if (leader && jitEnabled) {
+                BlockCompiler.CompiledBlock b = jit.enter(pc);
+                if (b != null && b.length() <= limit - n && !b.spans(breakpoint)) {
+                    int k = b.execute(rf, cache);
+                    n += k;
+                    lastPc = b.start + k - 1;
+                    lastWord = b.words[k - 1];
+                    leader = k == b.length() && b.endsAtLeader();
+                    continue;
+                }
+            }
+            Decoded d = lookup(pc);
+            if (cache != null) cache.read(pc);
+            rf[Registers.SLOT_PC] = (pc + 1) & addressMask;
+            decodeAndExecute(d);
+            n++;
+            lastPc = pc;
+            lastWord = d.word;
+            leader = BlockCompiler.endsBlock(d);
+        }
+        instructionCount += n;
+        if (lastPc >= 0) latch(lastPc, lastWord);
+        return new RunResult(n, reason);
     }
 
     /** Execute one fetch–decode–execute cycle. */
     public void runOneCycle() {
-        fetch();
-        decodeAndExecute();
+        decodeAndExecute(fetch());
+        instructionCount++;
+        if (tracer != null && --traceCountdown <= 0) {
+            traceCountdown = traceInterval;
+            tracer.instructionExecuted(this);
+        }
+    }
+
+    /* -----------------------------------------------------------
+     * Tracing
+     * ----------------------------------------------------------- */
+
+    /** Attach a trace listener, or null to run headless. */
+    public void setTraceListener(TraceListener listener) {
+        this.tracer = listener;
+        this.traceCountdown = traceInterval;
     }
 
+    public TraceListener getTraceListener() { return tracer; }
+
+    /** Trace every Nth instruction (1 = every instruction). */
+    public void setTraceInterval(int every) {
+        if (every < 1) throw new IllegalArgumentException("Trace interval must be at least 1: " + every);
+        this.traceInterval = every;
+        this.traceCountdown = every;
+    }
+
+    /** Instructions executed since this core was created. */
+    @Override
+    public long getInstructionCount() { return instructionCount; }
+
     /** FETCH PHASE:
      *  MAR ← PC
      *  MBR ← Mem[MAR]
      *  IR  ← MBR
      *  PC  ← PC + 1
+     * The word comes from the decode cache when the address is cached.
      */
-    private void fetch() {
-        int address = regs.PC.get();
-        regs.MAR.set(address);
-        regs.MBR.set(memory.readWord(address));
-        regs.IR.set(regs.MBR.get());
-        regs.PC.set(address + 1);
-    }
-
-    /** Decode IR fields and execute corresponding instruction. */
-    private void decodeAndExecute() {
-        int instr = regs.IR.get();
-
-        // bit-field extraction
-        int opcode  = (instr >> 10) & 0x3F;
-        int r       = (instr >> 8) & 0x03;
-        int ix      = (instr >> 6) & 0x03;
-        int i       = (instr >> 5) & 0x01;
-        int address =  instr & 0x1F;
-
-        switch (opcode) {
-            case 1 -> executeLDR(r, ix, i, address);
-            case 2 -> executeSTR(r, ix, i, address);
-            case 33 -> executeHLT();
-            default -> {
-                System.out.printf("Unknown opcode %d, halting.%n", opcode);
-                halted = true;
+    private Decoded fetch() {
+        int address = rf[Registers.SLOT_PC];
+        Decoded d = lookup(address);
+        if (cache != null) cache.read(address);
+        latch(address, d.word);
+        rf[Registers.SLOT_PC] = (address + 1) & addressMask;
+        return d;
+    }
+
+    // Decoded word at address, decoding and caching it on a miss
+    Decoded lookup(int address) {
+        int p = address >>> Memory.PAGE_BITS;
+        if (p >= decoded.length) return new Decoded(memory.readWord(address));   // outside memory
+        Decoded[] page = decoded[p];
+        if (page == null) page = decoded[p] = new Decoded[Memory.PAGE_WORDS];
+        int k = address & (Memory.PAGE_WORDS - 1);
+        Decoded d = page[k];
+        if (d == null) {
+            d = page[k] = new Decoded(memory.readWord(address));
+            decodeMisses++;
+        }
+        return d;
+    }
+
+    // MAR ← address, MBR ← IR ← word
+    private void latch(int address, int word) {
+        rf[Registers.SLOT_MAR] = address;
+        rf[Registers.SLOT_MBR] = word;
+        rf[Registers.SLOT_IR] = word;
+    }
+
+    /** Mask applied to PC (and jump targets) when it advances. */
+    int addressMask() { return addressMask; }
+
+    /** Execute a decoded instruction. */
+    void decodeAndExecute(Decoded d) {
+        d.handler.execute(this, d);
+    }
+
+    // Memory changed: forget decoded words and compiled blocks in [from, to)
+    private void invalidate(int from, int to) {
+        from = Math.max(from, 0);
+        to = Math.min(to, memory.size());
+        for (int a = from; a < to; ) {
+            int p = a >>> Memory.PAGE_BITS;
+            int pageEnd = Math.min(to, (p + 1) << Memory.PAGE_BITS);
+            Decoded[] page = decoded[p];
+            if (page != null) {
+                if (a == p << Memory.PAGE_BITS && pageEnd == (p + 1) << Memory.PAGE_BITS) decoded[p] = null;
+                else java.util.Arrays.fill(page, a & (Memory.PAGE_WORDS - 1), ((pageEnd - 1) & (Memory.PAGE_WORDS - 1)) + 1, null);
             }
+            a = pageEnd;
         }
+        jit.invalidate(from, to);
+    }
+
+    /** Number of fetches that had to decode the word (cache misses). */
+    public int getDecodeMisses() { return decodeMisses; }
+
+    /* -----------------------------------------------------------
+     * Block Tier
+     * ----------------------------------------------------------- */
+
+    /** Turn the compiled block tier on or off (on by default). */
+    public void setJitEnabled(boolean enabled) { this.jitEnabled = enabled; }
+
+    /** Block entries before a block is compiled. */
+    public void setJitThreshold(int entries) { jit.setThreshold(entries); }
+
+    public int getBlocksCompiled() { return jit.blocksCompiled(); }
+    public int getBlocksInvalidated() { return jit.blocksInvalidated(); }
+
+    /* -----------------------------------------------------------
+     * Cache Model
+     * ----------------------------------------------------------- */
+
+    /** Attach a cache model, or null to remove it. */
+    public void setCache(Cache cache) { this.cache = cache; }
+
+    public Cache getCache() { return cache; }
+
+    // Program data read, seen by the cache model
+    int load(int address) {
+        if (cache != null) cache.read(address);
+        return memory.readWord(address);
+    }
+
+    // Program data write, seen by the cache model
+    void store(int address, int value) {
+        if (cache != null) cache.write(address);
+        memory.writeWord(address, value);
+    }
+
+    /* -----------------------------------------------------------
+     * Snapshots
+     * -----------------------------------------------------------
+     * Memory is shared copy-on-write, so taking a snapshot copies only
+     * the register file, and restoring rewrites only the memory pages
+     * that changed (and drops just those from the decode cache).
+     */
+
+    public MachineSnapshot snapshot() {
+        return new MachineSnapshot(this, memory.snapshot(), rf.clone(), halted);
+    }
+
+    public void restore(MachineSnapshot snap) {
+        if (snap.core != this) throw new IllegalArgumentException("Snapshot belongs to another MachineCore");
+        memory.restore(snap.memory);
+        System.arraycopy(snap.registers, 0, rf, 0, rf.length);
+        halted = snap.halted;
+    }
 
-        printState();  // debug output for Testing/UI
+    /* -----------------------------------------------------------
+     * I/O Devices
+     * ----------------------------------------------------------- */
+
+    /** Attach a device by id (0–31), or null to detach it. Device 1 starts as the console printer. */
+    public void attachDevice(int id, Device device) {
+        if (id < 0 || id >= devices.length) throw new IllegalArgumentException("Device id out of range: " + id);
+        devices[id] = device;
     }
 
+    /* -----------------------------------------------------------
+     * Instruction Handlers
+     * ----------------------------------------------------------- */
+
     /** Compute effective address from IX and I bits. */
     private int calcEA(int ix, int i, int addr) {
         int ea = addr;
-        if (ix > 0) ea += regs.IXR[ix - 1].get(); // indexed
-        if (i == 1) ea = memory.readWord(ea);         // indirect
+        if (ix > 0) ea += rf[Registers.SLOT_X1 + ix - 1]; // indexed
+        if (i == 1) ea = load(ea);                    // indirect
         return ea;
     }
 
+    private int ea(Decoded d) {
+        return calcEA(d.ix, d.i, d.address);
+    }
+
+    private void jump(int ea) {
+        rf[Registers.SLOT_PC] = ea & addressMask;
+    }
+
+    // Store a signed arithmetic result, setting OVERFLOW / UNDERFLOW
+    void arith(int slot, int result) {
+        int cc = rf[Registers.SLOT_CC] & ~(CC_OVERFLOW | CC_UNDERFLOW);
+        if (result > Short.MAX_VALUE) cc |= CC_OVERFLOW;
+        else if (result < Short.MIN_VALUE) cc |= CC_UNDERFLOW;
+        rf[Registers.SLOT_CC] = cc;
+        rf[slot] = result & Registers.WORD_MASK;
+    }
+
+    private static int signed(int word) { return (short) word; }
+
+    /** Record a machine fault and halt. */
+    private void fault(int code, Decoded d) {
+        rf[Registers.SLOT_MFR] = code;
+        System.err.printf("Machine fault %d at %04o (%s), halting.%n",
+                code, (rf[Registers.SLOT_PC] - 1) & addressMask, InstructionSet.getMnemonic(d.opcode));
+        executeHLT(d);
+    }
+
+    private void executeIllegal(Decoded d) {
+        fault(FAULT_ILLEGAL_OPCODE, d);
+    }
+
+    private void executeHLT(Decoded d) {
+        halted = true;
+        if (tracer != null) tracer.halted(this);
+    }
+
+    /** TRAP code — Mem[2] ← PC, PC ← Mem[Mem[0] + code]. */
+    private void executeTRAP(Decoded d) {
+        int code = d.address;
+        if (code > 15) {
+            fault(FAULT_ILLEGAL_TRAP, d);
+            return;
+        }
+        store(2, rf[Registers.SLOT_PC]);
+        jump(load(load(0) + code));
+    }
+
+    /* Load/Store */
+
     /** LDR r,ix,i,addr — Load register from memory. */
-    private void executeLDR(int r, int ix, int i, int addr) {
-        int ea = calcEA(ix, i, addr);
-        int val = memory.readWord(ea);
-        regs.GPR[r].set(val);
+    private void executeLDR(Decoded d) {
+        rf[Registers.SLOT_R0 + d.r] = load(ea(d));
     }
 
     /** STR r,ix,i,addr — Store register into memory. */
-    private void executeSTR(int r, int ix, int i, int addr) {
-        int ea = calcEA(ix, i, addr);
-        memory.writeWord(ea, regs.GPR[r].get());
+    private void executeSTR(Decoded d) {
+        store(ea(d), rf[Registers.SLOT_R0 + d.r]);
     }
 
-    private void executeHLT() {
-        halted = true;
-        System.out.println("Program halted.");
-        printState(); // show final octal state
+    /** LDA r,ix,i,addr — Load register with the effective address. */
+    private void executeLDA(Decoded d) {
+        rf[Registers.SLOT_R0 + d.r] = ea(d) & Registers.WORD_MASK;
+    }
+
+    /** LDX x,addr[,I] — Load index register x (the IX field names x). */
+    private void executeLDX(Decoded d) {
+        rf[Registers.SLOT_X1 + d.ix - 1] = load(calcEA(0, d.i, d.address));
+    }
+
+    /** STX x,addr[,I] — Store index register x. */
+    private void executeSTX(Decoded d) {
+        store(calcEA(0, d.i, d.address), rf[Registers.SLOT_X1 + d.ix - 1]);
+    }
+
+    /* Transfer */
+
+    private void executeJZ(Decoded d) {
+        if (rf[Registers.SLOT_R0 + d.r] == 0) jump(ea(d));
+    }
+
+    private void executeJNE(Decoded d) {
+        if (rf[Registers.SLOT_R0 + d.r] != 0) jump(ea(d));
+    }
+
+    /** JCC cc,ix,addr — jump if condition code bit cc is set. */
+    private void executeJCC(Decoded d) {
+        if ((rf[Registers.SLOT_CC] >> d.r & 1) != 0) jump(ea(d));
+    }
+
+    private void executeJMA(Decoded d) {
+        jump(ea(d));
+    }
+
+    /** JSR x,addr — R3 ← PC (return address), PC ← EA. */
+    private void executeJSR(Decoded d) {
+        int ea = ea(d);
+        rf[Registers.SLOT_R0 + 3] = rf[Registers.SLOT_PC];
+        jump(ea);
+    }
+
+    /** RFS immed — R0 ← immed, PC ← R3. */
+    private void executeRFS(Decoded d) {
+        rf[Registers.SLOT_R0] = d.address;
+        jump(rf[Registers.SLOT_R0 + 3]);
+    }
+
+    /** SOB r,ix,addr — r ← r - 1, jump if r > 0. */
+    private void executeSOB(Decoded d) {
+        int slot = Registers.SLOT_R0 + d.r;
+        rf[slot] = (rf[slot] - 1) & Registers.WORD_MASK;
+        if (signed(rf[slot]) > 0) jump(ea(d));
+    }
+
+    private void executeJGE(Decoded d) {
+        if (signed(rf[Registers.SLOT_R0 + d.r]) >= 0) jump(ea(d));
+    }
+
+    /* Arithmetic/Logical */
+
+    private void executeAMR(Decoded d) {
+        int slot = Registers.SLOT_R0 + d.r;
+        arith(slot, signed(rf[slot]) + signed(load(ea(d))));
+    }
+
+    private void executeSMR(Decoded d) {
+        int slot = Registers.SLOT_R0 + d.r;
+        arith(slot, signed(rf[slot]) - signed(load(ea(d))));
+    }
+
+    /** AIR r,immed — the immediate is the unsigned address field. */
+    private void executeAIR(Decoded d) {
+        int slot = Registers.SLOT_R0 + d.r;
+        arith(slot, signed(rf[slot]) + d.address);
+    }
+
+    private void executeSIR(Decoded d) {
+        int slot = Registers.SLOT_R0 + d.r;
+        arith(slot, signed(rf[slot]) - d.address);
+    }
+
+    /** MLT rx,ry — rx:rx+1 ← rx * ry (high word in rx). */
+    private void executeMLT(Decoded d) {
+        int rx = Registers.SLOT_R0 + d.r;
+        int product = signed(rf[rx]) * signed(rf[Registers.SLOT_R0 + d.ix]);
+        rf[rx] = (product >>> 16) & Registers.WORD_MASK;
+        rf[rx + 1] = product & Registers.WORD_MASK;
+        rf[Registers.SLOT_CC] &= ~(CC_OVERFLOW | CC_UNDERFLOW);   // a 32-bit product always fits
+    }
+
+    /** DVD rx,ry — rx ← quotient, rx+1 ← remainder; DIVZERO if ry is 0. */
+    private void executeDVD(Decoded d) {
+        int rx = Registers.SLOT_R0 + d.r;
+        int divisor = signed(rf[Registers.SLOT_R0 + d.ix]);
+        if (divisor == 0) {
+            rf[Registers.SLOT_CC] |= CC_DIVZERO;
+            return;
+        }
+        int dividend = signed(rf[rx]);
+        rf[Registers.SLOT_CC] &= ~CC_DIVZERO;
+        arith(rx, dividend / divisor);
+        rf[rx + 1] = (dividend % divisor) & Registers.WORD_MASK;
+    }
+
+    /** TRR rx,ry — EQUALORNOT ← (rx == ry). */
+    private void executeTRR(Decoded d) {
+        boolean equal = rf[Registers.SLOT_R0 + d.r] == rf[Registers.SLOT_R0 + d.ix];
+        if (equal) rf[Registers.SLOT_CC] |= CC_EQUAL;
+        else rf[Registers.SLOT_CC] &= ~CC_EQUAL;
+    }
+
+    private void executeAND(Decoded d) {
+        rf[Registers.SLOT_R0 + d.r] &= rf[Registers.SLOT_R0 + d.ix];
+    }
+
+    private void executeORR(Decoded d) {
+        rf[Registers.SLOT_R0 + d.r] |= rf[Registers.SLOT_R0 + d.ix];
+    }
+
+    private void executeNOT(Decoded d) {
+        int slot = Registers.SLOT_R0 + d.r;
+        rf[slot] = ~rf[slot] & Registers.WORD_MASK;
+    }
+
+    /* Shift/Rotate: count in bits 3–0, L/R in bit 6 (1 = left), A/L in bit 7 (1 = logical) */
+
+    private void executeSRC(Decoded d) {
+        int slot = Registers.SLOT_R0 + d.r;
+        int count = d.address & 0xF;
+        boolean left = (d.ix & 1) != 0;
+        boolean logical = (d.ix & 2) != 0;
+        int v = rf[slot];
+        if (left) v = v << count;
+        else if (logical) v = v >>> count;
+        else v = signed(v) >> count;
+        rf[slot] = v & Registers.WORD_MASK;
+    }
+
+    private void executeRRC(Decoded d) {
+        int slot = Registers.SLOT_R0 + d.r;
+        int count = d.address & 0xF;
+        if ((d.ix & 1) == 0) count = (16 - count) & 0xF;   // right rotate = left by 16 - count
+        int v = rf[slot];
+        rf[slot] = ((v << count) | (v >>> (16 - count))) & Registers.WORD_MASK;
+    }
+
+    /* I/O: device id in the address field */
+
+    private void executeIN(Decoded d) {
+        Device dev = devices[d.address];
+        rf[Registers.SLOT_R0 + d.r] = dev == null ? 0 : dev.read() & Registers.WORD_MASK;
+    }
+
+    private void executeOUT(Decoded d) {
+        Device dev = devices[d.address];
+        if (dev != null) dev.write(rf[Registers.SLOT_R0 + d.r]);
+    }
+
+    private void executeCHK(Decoded d) {
+        Device dev = devices[d.address];
+        rf[Registers.SLOT_R0 + d.r] = dev == null ? 0 : dev.status() & Registers.WORD_MASK;
     }
 
 
@@ -102,22 +667,41 @@ public class MachineCore {
     public void printState() {
         System.out.printf(
                 "PC=%04o  IR=%06o  MAR=%04o  MBR=%06o%n",
-                regs.PC.get(), regs.IR.get(),
-                regs.MAR.get(), regs.MBR.get()
+                rf[Registers.SLOT_PC], rf[Registers.SLOT_IR],
+                rf[Registers.SLOT_MAR], rf[Registers.SLOT_MBR]
         );
 
         System.out.printf(
                 "R0=%06o  R1=%06o  R2=%06o  R3=%06o%n",
-                regs.GPR[0].get(), regs.GPR[1].get(),
-                regs.GPR[2].get(), regs.GPR[3].get()
+                rf[Registers.SLOT_R0], rf[Registers.SLOT_R0 + 1],
+                rf[Registers.SLOT_R0 + 2], rf[Registers.SLOT_R0 + 3]
         );
 
         System.out.printf(
                 "X1=%06o  X2=%06o  X3=%06o%n%n",
-                regs.IXR[0].get(), regs.IXR[1].get(), regs.IXR[2].get()
+                rf[Registers.SLOT_X1], rf[Registers.SLOT_X1 + 1], rf[Registers.SLOT_X1 + 2]
         );
     }
 
 
+    @Override
     public boolean isHalted() { return halted; }
+
+    /** Clear the halted flag so run() continues from the current PC. */
+    public void resume() { halted = false; }
+
+    /* Register access for Testing_Module / UI_Module */
+    @Override public int getPC() { return rf[Registers.SLOT_PC]; }
+    public void setPC(int value) { regs.PC.set(value); }
+    @Override public int getIR() { return rf[Registers.SLOT_IR]; }
+    @Override public int getGPR(int r) { return rf[Registers.SLOT_R0 + r]; }
+    @Override public int getIXR(int x) { return rf[Registers.SLOT_X1 + x - 1]; }
+    @Override public int getCC() { return rf[Registers.SLOT_CC]; }
+    @Override public int getMFR() { return rf[Registers.SLOT_MFR]; }
+    @Override public int readMemory(int address) { return memory.readWord(address); }
+    public void setIXR(int x, int value) { regs.IXR[x - 1].set(value); }
+    public void setGPR(int r, int value) { regs.GPR[r].set(value); }
+
+    /** Read-only register view for UI_Module and tests. */
+    public Registers getRegisters() { return regs; }
 }
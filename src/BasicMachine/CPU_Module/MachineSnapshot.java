@@ -0,0 +1,25 @@
+package BasicMachine.CPU_Module;
+
+import BasicMachine.Memory_Module.Memory;
+
+/**
+ * MachineSnapshot.java
+ * ---------------------
+ * A checkpoint of one machine: its memory (shared copy-on-write with the
+ * live Memory), a copy of the register file and the halted flag.
+ * Taken with MachineCore.snapshot(), used with MachineCore.restore();
+ * one snapshot can be restored any number of times.
+ */
+public final class MachineSnapshot {
+    final MachineCore core;
+    final Memory.Snapshot memory;
+    final int[] registers;
+    final boolean halted;
+
+    MachineSnapshot(MachineCore core, Memory.Snapshot memory, int[] registers, boolean halted) {
+        this.core = core;
+        this.memory = memory;
+        this.registers = registers;
+        this.halted = halted;
+    }
+}
@@ -0,0 +1,25 @@
+package BasicMachine.CPU_Module;
+
+/**
+ * MachineState.java
+ * ------------------
+ * Read-only view of the machine, handed to runUntil predicates and
+ * available to the UI.  MachineCore implements it directly, so reading
+ * the state costs no copying.
+ */
+public interface MachineState {
+    int getPC();
+    int getIR();
+    int getGPR(int r);
+
+    /** Index register x (1–3). */
+    int getIXR(int x);
+
+    int getCC();
+    int getMFR();
+    boolean isHalted();
+    long getInstructionCount();
+
+    /** Memory word at address. */
+    int readMemory(int address);
+}
@@ -1,5 +1,6 @@
 package BasicMachine.CPU_Module;
 
+import BasicMachine.Memory_Module.Cache;
 import BasicMachine.Memory_Module.Memory;
 // import Assembler.Assembler;
 
@@ -20,17 +21,26 @@ public class MainSimulator {
             Memory mem = new Memory();
             Registers regs = new Registers();
             MachineCore cpu = new MachineCore(mem, regs);
+            java.util.List<String> options = java.util.Arrays.asList(args);
+            if (!options.contains("--headless")) cpu.setTraceListener(TraceListener.PRINT_STATE);
+            if (options.contains("--cache")) {
+                cpu.setCache(new Cache(256, 4, 4, Cache.Replacement.LRU, Cache.WritePolicy.WRITE_BACK));
+            }
 
-            // Load program and automatically detect start address
-            mem.load("load.ld");
+            // Load program (--lazy: read pages on first touch) and automatically detect start address
+            if (options.contains("--lazy")) mem.loadLazily("load.ld");
+            else mem.load("load.ld");
             regs.PC.set(mem.getProgramStartAddress());  // 👈 dynamic start
 
             System.out.printf("Program starting at address %04o%n%n",
                     mem.getProgramStartAddress());
 
             System.out.println("Starting simulation...");
+            long t0 = System.nanoTime();
             cpu.run();
-            System.out.println("Execution finished.");
+            System.out.printf("Execution finished: %d instruction(s) in %.3f ms.%n",
+                    cpu.getInstructionCount(), (System.nanoTime() - t0) / 1e6);
+            if (cpu.getCache() != null) System.out.println("Cache: " + cpu.getCache().stats());
         } catch (Exception e) {
             System.err.println("Simulation failed: " + e.getMessage());
             e.printStackTrace();
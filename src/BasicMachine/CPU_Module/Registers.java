@@ -9,44 +9,120 @@ package BasicMachine.CPU_Module;
  *  - Used by MachineCore.java to fetch, store, and modify values.
  *  - Shared with UI_Module (for visual display of register values).
  *  - MAR and MBR connect directly with Memory_Module.
+ *
+ * Storage:
+ *  All registers live in one int[] register file, indexed by the
+ *  constants below, with a fixed width mask per slot.  MachineCore
+ *  works on the array directly; the Register fields (PC, GPR[0], ...)
+ *  and the getters are thin views onto the same slots.
+ *
+ *  PC and MAR are 12 bits by default (2048-word memory); a machine with
+ *  more memory uses new Registers(addressBits) or forMemory(size).
  */
 class Register {  // internal helper, not public
-    private int value;
-    private final int size;
+    private final int[] file;
+    private final int index;
+    private final int mask;
 
-    public Register(int size) {
-        this.size = size;
-        this.value = 0;
+    Register(int[] file, int index, int mask) {
+        this.file = file;
+        this.index = index;
+        this.mask = mask;
     }
 
     /** Set register value (masked to register width). */
-    public void set(int val) {
-        int mask = (1 << size) - 1;
-        this.value = val & mask;
-    }
+    public void set(int val) { file[index] = val & mask; }
 
     /** Get current value. */
-    public int get() { return value; }
+    public int get() { return file[index]; }
 
     /** Reset to zero. */
-    public void clear() { value = 0; }
+    public void clear() { file[index] = 0; }
 }
 
 public class Registers {
+    // Register file slots
+    public static final int SLOT_PC  = 0;
+    public static final int SLOT_MAR = 1;
+    public static final int SLOT_MBR = 2;
+    public static final int SLOT_IR  = 3;
+    public static final int SLOT_R0  = 4;    // R0–R3 are SLOT_R0 .. SLOT_R0+3
+    public static final int SLOT_X1  = 8;    // X1–X3 are SLOT_X1 .. SLOT_X1+2
+    public static final int SLOT_CC  = 11;
+    public static final int SLOT_MFR = 12;
+    public static final int COUNT = 13;
+
+    public static final int DEFAULT_ADDRESS_BITS = 12;
+    public static final int ADDRESS_MASK = 0x0FFF;   // default 12-bit PC / MAR
+    public static final int WORD_MASK    = 0xFFFF;   // 16-bit everything else
+    public static final int FLAG_MASK    = 0x000F;   // 4-bit CC / MFR
+
+    private final int[] file = new int[COUNT];
+    private final int addressMask;
+
     // Special registers
-    public Register PC  = new Register(12);  // Program Counter
-    public Register MAR = new Register(12);  // Memory Address Register
-    public Register MBR = new Register(16);  // Memory Buffer Register
-    public Register IR  = new Register(16);  // Instruction Register
+    public final Register PC;    // Program Counter
+    public final Register MAR;   // Memory Address Register
+    public final Register MBR = new Register(file, SLOT_MBR, WORD_MASK);  // Memory Buffer Register
+    public final Register IR  = new Register(file, SLOT_IR, WORD_MASK);   // Instruction Register
+
+    public final Register CC  = new Register(file, SLOT_CC, FLAG_MASK);   // Condition Code
+    public final Register MFR = new Register(file, SLOT_MFR, FLAG_MASK);  // Machine Fault Register
 
     // General Purpose Registers (R0–R3)
-    public Register[] GPR = {
-            new Register(16), new Register(16),
-            new Register(16), new Register(16)
+    public final Register[] GPR = {
+            new Register(file, SLOT_R0, WORD_MASK), new Register(file, SLOT_R0 + 1, WORD_MASK),
+            new Register(file, SLOT_R0 + 2, WORD_MASK), new Register(file, SLOT_R0 + 3, WORD_MASK)
     };
 
     // Index Registers (X1–X3)
-    public Register[] IXR = {
-            new Register(16), new Register(16), new Register(16)
+    public final Register[] IXR = {
+            new Register(file, SLOT_X1, WORD_MASK), new Register(file, SLOT_X1 + 1, WORD_MASK),
+            new Register(file, SLOT_X1 + 2, WORD_MASK)
     };
+
+    public Registers() {
+        this(DEFAULT_ADDRESS_BITS);
+    }
+
+    /** Registers with addressBits-wide PC and MAR. */
+    public Registers(int addressBits) {
+        if (addressBits < 1 || addressBits > 30)
+            throw new IllegalArgumentException("Address width must be 1–30 bits: " + addressBits);
+        addressMask = (1 << addressBits) - 1;
+        PC  = new Register(file, SLOT_PC, addressMask);
+        MAR = new Register(file, SLOT_MAR, addressMask);
+    }
+
+    /** Registers wide enough to address a memory of the given size (at least 12 bits). */
+    public static Registers forMemory(int words) {
+        int bits = 32 - Integer.numberOfLeadingZeros(Math.max(words - 1, 1));
+        return new Registers(Math.max(DEFAULT_ADDRESS_BITS, bits));
+    }
+
+    /** Mask for PC / MAR values. */
+    public int addressMask() { return addressMask; }
+
+    /** The backing register file, for MachineCore's hot path. */
+    int[] file() { return file; }
+
+    /** Clear every register. */
+    public void reset() { java.util.Arrays.fill(file, 0); }
+
+    /* Read-only view for UI_Module and tests */
+    public int getPC()  { return file[SLOT_PC]; }
+    public int getMAR() { return file[SLOT_MAR]; }
+    public int getMBR() { return file[SLOT_MBR]; }
+    public int getIR()  { return file[SLOT_IR]; }
+    public int getCC()  { return file[SLOT_CC]; }
+    public int getMFR() { return file[SLOT_MFR]; }
+
+    /** General purpose register r (0–3). */
+    public int getGPR(int r) { return file[SLOT_R0 + r]; }
+
+    /** Index register x (1–3). */
+    public int getIXR(int x) { return file[SLOT_X1 + x - 1]; }
+
+    /** Value of register file slot (SLOT_PC, ..., SLOT_R0 + r, SLOT_X1 + x - 1). */
+    public int get(int slot) { return file[slot]; }
 }
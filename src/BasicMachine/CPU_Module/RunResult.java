@@ -0,0 +1,30 @@
+package BasicMachine.CPU_Module;
+
+/**
+ * RunResult.java
+ * ---------------
+ * Outcome of one MachineCore.runCycles / runUntil call: how many
+ * instructions ran and why the run stopped.
+ */
+public final class RunResult {
+
+    public enum StopReason {
+        HALTED,        // HLT or a machine fault
+        CYCLE_LIMIT,   // ran the requested number of cycles
+        BREAKPOINT,    // PC reached the requested address
+        PREDICATE      // the runUntil predicate became true
+    }
+
+    public final long cycles;
+    public final StopReason reason;
+
+    RunResult(long cycles, StopReason reason) {
+        this.cycles = cycles;
+        this.reason = reason;
+    }
+
+    @Override
+    public String toString() {
+        return reason + " after " + cycles + " cycle(s)";
+    }
+}
@@ -0,0 +1,34 @@
+package BasicMachine.CPU_Module;
+
+/**
+ * TraceListener.java
+ * -------------------
+ * Observer for MachineCore execution.
+ *
+ * A core with no listener runs headless: nothing is printed and the
+ * cycle loop does no tracing work at all.  With a listener attached,
+ * instructionExecuted is called after every Nth instruction (see
+ * MachineCore.setTraceInterval), and halted once when HLT executes.
+ */
+public interface TraceListener {
+
+    /** Called after a traced instruction has executed. */
+    void instructionExecuted(MachineCore core);
+
+    /** Called once when the machine halts. */
+    default void halted(MachineCore core) {}
+
+    /** Prints the register state after each traced instruction (the old debug output). */
+    TraceListener PRINT_STATE = new TraceListener() {
+        @Override
+        public void instructionExecuted(MachineCore core) {
+            core.printState();
+        }
+
+        @Override
+        public void halted(MachineCore core) {
+            System.out.println("Program halted.");
+            core.printState();
+        }
+    };
+}
@@ -0,0 +1,190 @@
+package BasicMachine.Memory_Module;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.BitSet;
+import java.util.zip.CRC32;
+
+/**
+ * BinaryImage.java
+ * -----------------
+ * Compact binary load image, the machine-friendly sibling of load.ld.
+ *
+ * Layout (all fields little-endian):
+ *   header   : magic "BMIM" (4 bytes), version (u16), segment count (u16),
+ *              entry point (s32, -1 = none)
+ *   segment  : start address (u32), word count (u32),
+ *              words (u16 each, word count of them)
+ *   trailer  : CRC32 of every byte before it (u32)
+ *
+ * A segment is one run of consecutive addresses, so a typical program
+ * is a handful of segments.  Loading maps the file and copies each
+ * segment into memory in bulk instead of parsing text line by line.
+ *
+ * Versions:
+ *   1 : entry field reserved (0), words in the original opcode numbering
+ *   2 : words in the CSCI 6461 numbering of InstructionSet
+ *   3 : entry field holds the entry point, -1 when there is none
+ * Older images are rejected rather than loaded, since their words or
+ * header may mean something else now; re-assemble them.
+ */
+public final class BinaryImage {
+    private BinaryImage() {}
+
+    public static final int MAGIC = 0x4D494D42;   // "BMIM" read as little-endian int
+    public static final int VERSION = 3;
+
+    private static final int HEADER_BYTES = 12;
+    private static final int SEGMENT_HEADER_BYTES = 8;
+    private static final int TRAILER_BYTES = 4;
+
+    /** Receives each segment of an image as it is loaded. */
+    public interface SegmentSink {
+        void segment(int start, short[] words, int count);
+    }
+
+    /** True if the file starts with the binary image magic. */
+    public static boolean isBinaryImage(Path file) {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            if (ch.read(head) < 4) return false;
+            return head.getInt(0) == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Write the words whose addresses are set in used as a binary image.
+     */
+    public static void write(Path file, int[] words, BitSet used) throws IOException {
+        write(file, words, used, -1);
+    }
+
+    /**
+     * Write a binary image with an entry point (-1 for none).
+     */
+    public static void write(Path file, int[] words, BitSet used, int entry) throws IOException {
+        // Count segments (runs of set bits) and total size up front
+        int segments = 0;
+        long bytes = HEADER_BYTES + TRAILER_BYTES;
+        for (int a = used.nextSetBit(0); a >= 0; ) {
+            int end = used.nextClearBit(a);
+            segments++;
+            bytes += SEGMENT_HEADER_BYTES + 2L * (end - a);
+            a = used.nextSetBit(end);
+        }
+        if (segments > 0xFFFF) throw new IOException("Too many segments for a binary image: " + segments);
+
+        ByteBuffer buf = ByteBuffer.allocate((int) bytes).order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(MAGIC).putShort((short) VERSION).putShort((short) segments).putInt(entry < 0 ? -1 : entry);
+        for (int a = used.nextSetBit(0); a >= 0; ) {
+            int end = used.nextClearBit(a);
+            buf.putInt(a).putInt(end - a);
+            for (int k = a; k < end; k++) buf.putShort((short) words[k]);
+            a = used.nextSetBit(end);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), 0, buf.position());
+        buf.putInt((int) crc.getValue());
+
+        Files.write(file, buf.array());
+    }
+
+    private static void checkVersion(int version, Path file) throws IOException {
+        if (version < VERSION)
+            throw new IOException("Binary image version " + version + " is out of date (opcode numbering or header changed), re-assemble it: " + file);
+        if (version != VERSION) throw new IOException("Unsupported binary image version " + version);
+    }
+
+    /** Entry point recorded in a binary image, or -1 if it has none. */
+    public static int entryPoint(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            if (ch.read(head, 0) < HEADER_BYTES || head.getInt(0) != MAGIC)
+                throw new IOException("Not a binary image: " + file);
+            checkVersion(head.getShort(4) & 0xFFFF, file);
+            int entry = head.getInt(8);
+            return entry < 0 ? -1 : entry;
+        }
+    }
+
+    /**
+     * Load a binary image into memory (word array).
+     * Returns the number of words loaded.
+     */
+    public static int load(Path file, int[] memory) throws IOException {
+        return load(file, memory.length, (start, words, count) -> {
+            for (int k = 0; k < count; k++) memory[start + k] = words[k] & 0xFFFF;
+        });
+    }
+
+    /**
+     * Load a binary image into a memory of the given size, handing each
+     * segment to sink.  Returns the number of words loaded.
+     */
+    public static int load(Path file, int capacity, SegmentSink sink) throws IOException {
+        short[][] chunk = {new short[0]};
+        return forEachSegment(file, capacity, (start, words) -> {
+            // One bulk copy per segment
+            int count = words.remaining();
+            if (chunk[0].length < count) chunk[0] = new short[count];
+            words.get(chunk[0], 0, count);
+            sink.segment(start, chunk[0], count);
+        });
+    }
+
+    /** Sees each segment of an image in place, without copying it. */
+    interface SegmentView {
+        void segment(int start, ShortBuffer words);
+    }
+
+    /**
+     * Map and verify a binary image for a memory of the given size, and
+     * hand each segment's words, as a view of the mapped file, to view.
+     * Returns the number of words in the image.
+     */
+    static int forEachSegment(Path file, int capacity, SegmentView view) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size < HEADER_BYTES + TRAILER_BYTES) throw new IOException("Binary image too short: " + file);
+
+            MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            map.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (map.getInt(0) != MAGIC) throw new IOException("Not a binary image: " + file);
+            checkVersion(map.getShort(4) & 0xFFFF, file);
+
+            // Verify checksum before touching memory
+            int body = (int) size - TRAILER_BYTES;
+            CRC32 crc = new CRC32();
+            crc.update(map.duplicate().limit(body));
+            if ((int) crc.getValue() != map.getInt(body)) throw new IOException("Binary image checksum mismatch: " + file);
+
+            int segments = map.getShort(6) & 0xFFFF;
+            int pos = HEADER_BYTES;
+            int loaded = 0;
+            for (int s = 0; s < segments; s++) {
+                int start = map.getInt(pos);
+                int count = map.getInt(pos + 4);
+                pos += SEGMENT_HEADER_BYTES;
+                if (start < 0 || count < 0 || (long) start + count > capacity)
+                    throw new IOException("Segment " + start + "+" + count + " does not fit in memory");
+                if (pos + 2L * count > body) throw new IOException("Truncated segment at " + start);
+
+                view.segment(start, map.duplicate().position(pos).limit(pos + 2 * count)
+                        .slice().order(ByteOrder.LITTLE_ENDIAN).asShortBuffer());
+
+                pos += 2 * count;
+                loaded += count;
+            }
+            return loaded;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package BasicMachine.Memory_Module;
+
+/**
+ * Cache.java
+ * -----------
+ * Set-associative cache model placed between the core and Memory.
+ *
+ * Configuration:
+ *  - size and line size in words, and the number of ways per set, all
+ *    powers of two (ways == lines gives a fully associative cache,
+ *    ways == 1 a direct-mapped one)
+ *  - replacement: LRU (least recently used) or FIFO (oldest fill)
+ *  - writes: WRITE_THROUGH (no allocate on a write miss, every write
+ *    goes to memory) or WRITE_BACK (allocate on a write miss, dirty
+ *    lines are written back when evicted or flushed)
+ *
+ * Model:
+ *  Only tags, dirty bits and ages are kept.  Words are always read from
+ *  and written to Memory, so snapshots, decode caches and write
+ *  listeners stay exact whatever the cache does; the model only counts
+ *  what a real cache of this shape would have done.  Each access is a
+ *  shift, a mask and a scan of one set, so it can stay attached.
+ *
+ * Statistics:
+ *  stats() returns the counts since the last resetStats(); call
+ *  resetStats() before a run to get figures for that run alone.
+ */
+public class Cache {
+
+    public enum Replacement { LRU, FIFO }
+
+    public enum WritePolicy { WRITE_THROUGH, WRITE_BACK }
+
+    /** Access counts at one point in time. */
+    public static final class Stats {
+        public final long reads;
+        public final long writes;
+        public final long hits;
+        public final long misses;
+        public final long evictions;        // valid lines replaced
+        public final long writebacks;       // dirty lines written to memory
+        public final long memoryWrites;     // words written through to memory
+
+        private Stats(long reads, long writes, long hits, long misses,
+                      long evictions, long writebacks, long memoryWrites) {
+            this.reads = reads;
+            this.writes = writes;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.writebacks = writebacks;
+            this.memoryWrites = memoryWrites;
+        }
+
+        /** Hits per access (0 when nothing was accessed). */
+        public double hitRate() {
+            long accesses = hits + misses;
+            return accesses == 0 ? 0.0 : (double) hits / accesses;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d reads, %d writes, %d hits, %d misses (%.1f%% hit rate), "
+                            + "%d evictions, %d writebacks, %d write-throughs",
+                    reads, writes, hits, misses, hitRate() * 100, evictions, writebacks, memoryWrites);
+        }
+    }
+
+    private final int sizeWords;
+    private final int lineBits;
+    private final int ways;
+    private final int setMask;
+    private final Replacement replacement;
+    private final WritePolicy writePolicy;
+
+    // Line state, [set * ways + way]
+    private final int[] tags;          // line number, -1 = invalid
+    private final long[] age;          // last use (LRU) or fill (FIFO) tick
+    private final boolean[] dirty;
+    private long tick = 0;
+
+    private long reads, writes, hits, misses, evictions, writebacks, memoryWrites;
+
+    /**
+     * A cache of sizeWords words in lines of lineWords words, with ways
+     * lines per set.
+     */
+    public Cache(int sizeWords, int lineWords, int ways, Replacement replacement, WritePolicy writePolicy) {
+        if (!isPowerOfTwo(sizeWords) || !isPowerOfTwo(lineWords) || !isPowerOfTwo(ways))
+            throw new IllegalArgumentException("Cache size, line size and ways must be powers of two");
+        if (lineWords * ways > sizeWords)
+            throw new IllegalArgumentException("Cache of " + sizeWords + " words cannot hold "
+                    + ways + " ways of " + lineWords + "-word lines");
+        if (replacement == null || writePolicy == null)
+            throw new IllegalArgumentException("Replacement and write policy must not be null");
+        this.sizeWords = sizeWords;
+        this.lineBits = Integer.numberOfTrailingZeros(lineWords);
+        this.ways = ways;
+        this.setMask = sizeWords / (lineWords * ways) - 1;
+        this.replacement = replacement;
+        this.writePolicy = writePolicy;
+        int lines = sizeWords >>> lineBits;
+        this.tags = new int[lines];
+        this.age = new long[lines];
+        this.dirty = new boolean[lines];
+        java.util.Arrays.fill(tags, -1);
+    }
+
+    private static boolean isPowerOfTwo(int n) {
+        return n > 0 && (n & (n - 1)) == 0;
+    }
+
+    public int sizeWords() { return sizeWords; }
+    public int lineWords() { return 1 << lineBits; }
+    public int ways() { return ways; }
+    public int sets() { return setMask + 1; }
+    public Replacement replacement() { return replacement; }
+    public WritePolicy writePolicy() { return writePolicy; }
+
+    /* -----------------------------------------------------------
+     * Accesses
+     * ----------------------------------------------------------- */
+
+    /** Record a read of address. */
+    public void read(int address) {
+        reads++;
+        int line = address >>> lineBits;
+        int slot = find(line);
+        if (slot >= 0) {
+            hit(slot);
+            return;
+        }
+        misses++;
+        fill(line);
+    }
+
+    /** Record a write to address. */
+    public void write(int address) {
+        writes++;
+        int line = address >>> lineBits;
+        int slot = find(line);
+        if (writePolicy == WritePolicy.WRITE_THROUGH) {
+            memoryWrites++;
+            if (slot >= 0) hit(slot);
+            else misses++;                  // no allocate
+            return;
+        }
+        if (slot >= 0) hit(slot);
+        else {
+            misses++;
+            slot = fill(line);
+        }
+        dirty[slot] = true;
+    }
+
+    // Slot holding line, or -1
+    private int find(int line) {
+        int base = (line & setMask) * ways;
+        for (int w = base; w < base + ways; w++) {
+            if (tags[w] == line) return w;
+        }
+        return -1;
+    }
+
+    private void hit(int slot) {
+        hits++;
+        if (replacement == Replacement.LRU) age[slot] = ++tick;
+    }
+
+    // Bring line into its set, replacing an empty or the oldest line
+    private int fill(int line) {
+        int base = (line & setMask) * ways;
+        int victim = base;
+        for (int w = base; w < base + ways; w++) {
+            if (tags[w] < 0) {
+                victim = w;
+                break;
+            }
+            if (age[w] < age[victim]) victim = w;
+        }
+        if (tags[victim] >= 0) {
+            evictions++;
+            if (dirty[victim]) writebacks++;
+        }
+        tags[victim] = line;
+        age[victim] = ++tick;
+        dirty[victim] = false;
+        return victim;
+    }
+
+    /* -----------------------------------------------------------
+     * Maintenance
+     * ----------------------------------------------------------- */
+
+    /** Write back every dirty line (counted as writebacks); lines stay valid. */
+    public void flush() {
+        for (int k = 0; k < tags.length; k++) {
+            if (dirty[k]) {
+                writebacks++;
+                dirty[k] = false;
+            }
+        }
+    }
+
+    /** Drop every line without writing anything back. */
+    public void invalidate() {
+        java.util.Arrays.fill(tags, -1);
+        java.util.Arrays.fill(dirty, false);
+    }
+
+    public Stats stats() {
+        return new Stats(reads, writes, hits, misses, evictions, writebacks, memoryWrites);
+    }
+
+    /** Zero the statistics; cache contents are kept. */
+    public void resetStats() {
+        reads = writes = hits = misses = evictions = writebacks = memoryWrites = 0;
+    }
+}
@@ -0,0 +1,167 @@
+package BasicMachine.Memory_Module;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * ChunkedTextLoader.java
+ * -----------------------
+ * Parallel loader for large text images in which every line carries its
+ * own address (load.ld "address word" pairs and the like).
+ *
+ * How it works:
+ *  - the file is memory-mapped and cut into chunks at line boundaries
+ *  - each chunk is scanned on the fork-join pool by a LineScanner, which
+ *    turns a line into an (address, word) pair, skips it, or rejects it
+ *  - each chunk collects its words as runs of consecutive addresses;
+ *    once every chunk has succeeded the runs are handed to the sink in
+ *    file order, so a later line for the same address still wins
+ *
+ * All or nothing:
+ *  If any line is rejected (a directive, an address outside memory, a
+ *  line that depends on earlier lines) nothing is written and load()
+ *  returns -1, so the caller can load the file its usual sequential way
+ *  and report errors exactly as before.  Formats whose addresses follow
+ *  from earlier lines (raw data, ORG/LOC) are never loaded here.
+ */
+public final class ChunkedTextLoader {
+    private ChunkedTextLoader() {}
+
+    /** Files smaller than this are not worth splitting. */
+    public static final long DEFAULT_MIN_BYTES = 1 << 20;
+
+    private static final int MIN_CHUNK_BYTES = 64 * 1024;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /** Scanner result for a blank or comment-only line. */
+    public static final long SKIP = -1L;
+    /** Scanner result for a line this loader cannot take. */
+    public static final long REJECT = -2L;
+
+    /**
+     * Reads one line, b[from, end) without the line terminator, and
+     * returns address << 32 | word (word in the low 16 bits), SKIP or
+     * REJECT.  Called from several threads at once.
+     */
+    public interface LineScanner {
+        long scan(byte[] b, int from, int end);
+    }
+
+    // Words of one chunk, as runs of consecutive addresses
+    private static final class Chunk {
+        short[] words = new short[256];
+        int[] runStart = new int[16];     // address of each run
+        int[] runOffset = new int[17];    // index into words of each run, plus the end
+        int runs = 0;
+        int count = 0;
+        int lines = 0;                    // lines that produced a word
+        boolean rejected;
+
+        void add(int address, int word) {
+            if (runs == 0 || address != runStart[runs - 1] + (count - runOffset[runs - 1])) {
+                if (runs == runStart.length) {
+                    runStart = java.util.Arrays.copyOf(runStart, runs * 2);
+                    runOffset = java.util.Arrays.copyOf(runOffset, runs * 2 + 1);
+                }
+                runStart[runs] = address;
+                runOffset[runs] = count;
+                runs++;
+            }
+            if (count == words.length) words = java.util.Arrays.copyOf(words, count * 2);
+            words[count++] = (short) word;
+            lines++;
+        }
+    }
+
+    /**
+     * Load file, from byte skip on (past a LoadHeader line, say), through
+     * scanner into a memory of capacity words, handing runs to sink.
+     * Returns the number of lines that produced a word, or -1 (with
+     * nothing written) if a line was rejected.
+     */
+    public static long load(Path file, int skip, int capacity, LineScanner scanner, BinaryImage.SegmentSink sink)
+            throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size > Integer.MAX_VALUE) return -1;
+            MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int[] bounds = split(map, Math.min(skip, (int) size), (int) size);
+
+            // Scan every chunk before writing anything
+            ForkJoinPool pool = ForkJoinPool.commonPool();
+            List<ForkJoinTask<Chunk>> tasks = new ArrayList<>();
+            for (int c = 0; c + 1 < bounds.length; c++) {
+                int from = bounds[c], to = bounds[c + 1];
+                tasks.add(pool.submit(() -> scan(map, from, to, capacity, scanner)));
+            }
+            Chunk[] chunks = new Chunk[tasks.size()];
+            boolean rejected = false;
+            for (int c = 0; c < chunks.length; c++) {
+                chunks[c] = tasks.get(c).join();
+                rejected |= chunks[c].rejected;
+            }
+            if (rejected) return -1;
+
+            long lines = 0;
+            for (Chunk chunk : chunks) {
+                for (int r = 0; r < chunk.runs; r++) {
+                    int off = chunk.runOffset[r];
+                    int n = (r + 1 < chunk.runs ? chunk.runOffset[r + 1] : chunk.count) - off;
+                    short[] run = off == 0 ? chunk.words : java.util.Arrays.copyOfRange(chunk.words, off, off + n);
+                    sink.segment(chunk.runStart[r], run, n);
+                }
+                lines += chunk.lines;
+            }
+            return lines;
+        }
+    }
+
+    // Chunk boundaries of [from, size), each just after a line terminator
+    private static int[] split(MappedByteBuffer map, int from, int size) {
+        int chunks = Math.max(1, Math.min((size - from) / MIN_CHUNK_BYTES,
+                ForkJoinPool.getCommonPoolParallelism() * CHUNKS_PER_THREAD));
+        int[] bounds = new int[chunks + 1];
+        bounds[0] = from;
+        int n = 1;
+        for (int c = 1; c < chunks; c++) {
+            int at = Math.max(from + (int) ((long) (size - from) * c / chunks), bounds[n - 1]);
+            while (at < size && !isLineEnd(map.get(at))) at++;
+            while (at < size && isLineEnd(map.get(at))) at++;
+            if (at > bounds[n - 1] && at < size) bounds[n++] = at;
+        }
+        bounds[n++] = size;
+        return java.util.Arrays.copyOf(bounds, n);
+    }
+
+    private static Chunk scan(MappedByteBuffer map, int from, int to, int capacity, LineScanner scanner) {
+        byte[] b = new byte[to - from];
+        map.get(from, b);
+        Chunk chunk = new Chunk();
+        for (int pos = 0; pos < b.length; ) {
+            int end = pos;
+            while (end < b.length && !isLineEnd(b[end])) end++;
+            long r = scanner.scan(b, pos, end);
+            if (r != SKIP) {
+                int address = (int) (r >>> 32);
+                if (r == REJECT || address < 0 || address >= capacity) {
+                    chunk.rejected = true;
+                    return chunk;
+                }
+                chunk.add(address, (int) r & 0xFFFF);
+            }
+            pos = end + 1;
+        }
+        return chunk;
+    }
+
+    private static boolean isLineEnd(byte c) {
+        return c == '\n' || c == '\r';
+    }
+}
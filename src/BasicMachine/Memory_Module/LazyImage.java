@@ -0,0 +1,246 @@
+package BasicMachine.Memory_Module;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+/**
+ * LazyImage.java
+ * ---------------
+ * A load image indexed by address range, whose pages are read into
+ * Memory on first access (see Memory.loadLazily).
+ *
+ * Index:
+ *  The image is cut into extents, each with the lowest and highest
+ *  address it writes: one per binary image segment, or one per block of
+ *  BLOCK_LINES word lines of load.ld text.  Each page keeps the extents
+ *  that may write to it, in file order, so filling a page decodes only
+ *  those and a later line for the same address still wins.
+ *
+ * Limits:
+ *  open() returns null, and the caller loads the file eagerly instead,
+ *  for text with a line load.ld would not accept or an address outside
+ *  memory (so errors are reported as usual), and for text whose blocks
+ *  are spread so widely that the index would be larger than the image.
+ *  The file is mapped, so it must not change while pages are pending.
+ */
+final class LazyImage {
+    private static final int BLOCK_LINES = 256;
+    private static final int ENTRIES_PER_PAGE = 4;    // index size limit, on average
+    private static final int WINDOW_BYTES = 1 << 20;   // text scanned this much at a time
+
+    // Extents, in file order
+    private int extents = 0;
+    private int[] first = new int[16];              // lowest address written
+    private int[] last = new int[16];               // highest address written
+    private ShortBuffer[] words;                    // binary: the segment's words
+    private int[] from, to;                         // text: the block's bytes
+    private final MappedByteBuffer text;
+
+    // Extents of page p: pageExtents[pageStart[p] .. pageStart[p + 1])
+    private int[] pageStart;
+    private int[] pageExtents;
+    private final BitSet pending = new BitSet();
+    private int remaining;
+
+    private int entry = -1;                         // entry point the file names, -1 = none
+    private int low = -1, high = -1;                // extent of the image, -1 = empty
+
+    private LazyImage(MappedByteBuffer text) {
+        this.text = text;
+        if (text == null) words = new ShortBuffer[16];
+        else {
+            from = new int[16];
+            to = new int[16];
+        }
+    }
+
+    /**
+     * Index file for a memory of capacity words, or null if it should be
+     * loaded eagerly.  Binary images are checked (checksum, segment
+     * bounds) here, so a bad image fails before anything is loaded.
+     */
+    static LazyImage open(Path file, int capacity) throws IOException {
+        LazyImage image;
+        if (BinaryImage.isBinaryImage(file)) {
+            LazyImage binary = new LazyImage(null);
+            BinaryImage.forEachSegment(file, capacity, (start, words) -> {
+                if (words.remaining() > 0) binary.addSegment(start, words);
+            });
+            binary.entry = BinaryImage.entryPoint(file);
+            image = binary;
+        } else {
+            image = indexText(file, capacity);
+            if (image == null) return null;
+        }
+        return image.buildPageIndex(capacity) ? image : null;
+    }
+
+    private void addSegment(int start, ShortBuffer segment) {
+        grow();
+        first[extents] = start;
+        last[extents] = start + segment.remaining() - 1;
+        words[extents++] = segment;
+    }
+
+    private void addBlock(int low, int high, int fromByte, int toByte) {
+        grow();
+        first[extents] = low;
+        last[extents] = high;
+        from[extents] = fromByte;
+        to[extents++] = toByte;
+    }
+
+    private void grow() {
+        if (extents < first.length) return;
+        int n = extents * 2;
+        first = java.util.Arrays.copyOf(first, n);
+        last = java.util.Arrays.copyOf(last, n);
+        if (words != null) words = java.util.Arrays.copyOf(words, n);
+        else {
+            from = java.util.Arrays.copyOf(from, n);
+            to = java.util.Arrays.copyOf(to, n);
+        }
+    }
+
+    // Blocks of load.ld lines with their address ranges; null if a line is not loadable
+    private static LazyImage indexText(Path file, int capacity) throws IOException {
+        MappedByteBuffer map;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() > Integer.MAX_VALUE) return null;
+            map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+        LazyImage image = new LazyImage(map);
+        int size = map.capacity();
+        byte[] b = new byte[Math.min(size, WINDOW_BYTES)];
+
+        // Entry point header, if any, then the address/word lines
+        int n = Math.min(size, LoadHeader.MAX_BYTES);
+        map.get(0, b, 0, n);
+        image.entry = LoadHeader.entryPoint(b, n);
+        int base = LoadHeader.length(b, n);
+        int blockFrom = base, lines = 0, low = Integer.MAX_VALUE, high = -1;
+        while (base < size) {
+            // A window of whole lines (the last one may end at end of file)
+            n = Math.min(b.length, size - base);
+            map.get(base, b, 0, n);
+            int limit = n;
+            if (base + n < size) {
+                while (limit > 0 && b[limit - 1] != '\n' && b[limit - 1] != '\r') limit--;
+                if (limit == 0) {
+                    b = new byte[b.length * 2];   // a line longer than the window
+                    continue;
+                }
+            }
+            for (int pos = 0; pos < limit; ) {
+                int end = pos;
+                while (end < limit && b[end] != '\n' && b[end] != '\r') end++;
+                long r = Memory.scanPairLine(b, pos, end);
+                if (r != ChunkedTextLoader.SKIP) {
+                    int address = (int) (r >>> 32);
+                    if (r == ChunkedTextLoader.REJECT || address < 0 || address >= capacity) return null;
+                    low = Math.min(low, address);
+                    high = Math.max(high, address);
+                    if (++lines == BLOCK_LINES) {
+                        image.addBlock(low, high, blockFrom, base + end);
+                        blockFrom = base + end;
+                        lines = 0;
+                        low = Integer.MAX_VALUE;
+                        high = -1;
+                    }
+                }
+                pos = end + 1;
+            }
+            base += limit;
+        }
+        if (lines > 0) image.addBlock(low, high, blockFrom, size);
+        return image;
+    }
+
+    // Page -> extents table; false if it would be too large
+    private boolean buildPageIndex(int capacity) {
+        int pageCount = (capacity + Memory.PAGE_WORDS - 1) >>> Memory.PAGE_BITS;
+        long entries = 0;
+        for (int e = 0; e < extents; e++) {
+            entries += (last[e] >>> Memory.PAGE_BITS) - (first[e] >>> Memory.PAGE_BITS) + 1;
+            if (low < 0 || first[e] < low) low = first[e];
+            high = Math.max(high, last[e]);
+        }
+        if (entries > (long) ENTRIES_PER_PAGE * pageCount + extents) return false;
+
+        pageStart = new int[pageCount + 1];
+        for (int e = 0; e < extents; e++) {
+            for (int p = first[e] >>> Memory.PAGE_BITS; p <= last[e] >>> Memory.PAGE_BITS; p++) pageStart[p + 1]++;
+        }
+        for (int p = 0; p < pageCount; p++) pageStart[p + 1] += pageStart[p];
+        pageExtents = new int[(int) entries];
+        int[] next = java.util.Arrays.copyOf(pageStart, pageCount);
+        for (int e = 0; e < extents; e++) {
+            for (int p = first[e] >>> Memory.PAGE_BITS; p <= last[e] >>> Memory.PAGE_BITS; p++) {
+                pageExtents[next[p]++] = e;
+                pending.set(p);
+            }
+        }
+        remaining = pending.cardinality();
+        return true;
+    }
+
+    /** True if page p still has words to read from the image. */
+    boolean pending(int p) {
+        return pending.get(p);
+    }
+
+    /** Entry point the file names, or -1. */
+    int entryPoint() {
+        return entry;
+    }
+
+    /** Lowest address the image writes, or -1 if it is empty. */
+    int low() {
+        return low;
+    }
+
+    /** Highest address the image writes, or -1 if it is empty. */
+    int high() {
+        return high;
+    }
+
+    /** Number of pages not yet filled. */
+    int remaining() {
+        return remaining;
+    }
+
+    /** Write the image's words for page p into page and mark it filled. */
+    void fill(int p, WordPage page) {
+        int low = p << Memory.PAGE_BITS, high = low + Memory.PAGE_WORDS - 1;
+        byte[] b = null;
+        for (int k = pageStart[p]; k < pageStart[p + 1]; k++) {
+            int e = pageExtents[k];
+            if (text == null) {
+                // Binary: copy the overlap of the segment and the page
+                int a = Math.max(first[e], low), z = Math.min(last[e], high);
+                for (; a <= z; a++) page.set(a - low, words[e].get(a - first[e]) & 0xFFFF);
+                continue;
+            }
+            int n = to[e] - from[e];
+            if (b == null || b.length < n) b = new byte[n];
+            text.get(from[e], b, 0, n);
+            for (int pos = 0; pos < n; ) {
+                int end = pos;
+                while (end < n && b[end] != '\n' && b[end] != '\r') end++;
+                long r = Memory.scanPairLine(b, pos, end);
+                int address = (int) (r >>> 32);
+                if (r != ChunkedTextLoader.SKIP && address >= low && address <= high) {
+                    page.set(address - low, (int) r & 0xFFFF);
+                }
+                pos = end + 1;
+            }
+        }
+        pending.clear(p);
+        remaining--;
+    }
+}
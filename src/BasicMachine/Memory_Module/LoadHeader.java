@@ -0,0 +1,76 @@
+package BasicMachine.Memory_Module;
+
+/**
+ * LoadHeader.java
+ * ----------------
+ * Optional first line of a load.ld file (and of output.lst) naming the
+ * program's entry point:
+ *
+ *     START 000016
+ *
+ * The keyword, blanks, the octal address, then the end of the line.
+ * The assembler writes it when the source has an END or START directive
+ * with an operand.  Loaders read it once, before the address/word
+ * lines, so the start address is known without scanning memory; a file
+ * without it loads exactly as before.
+ */
+public final class LoadHeader {
+    private LoadHeader() {}
+
+    public static final String KEYWORD = "START";
+
+    /** The header line for entry (0 to 0xFFFF, like every address in the file), without a line terminator. */
+    public static String line(int entry) {
+        if (entry < 0 || entry > 0xFFFF) throw new IllegalArgumentException("Entry point out of range: " + entry);
+        String octal = Integer.toOctalString(entry);
+        return KEYWORD + " " + "000000".substring(Math.min(octal.length(), 6)) + octal;
+    }
+
+    /** A header line is only recognised within the first MAX_BYTES bytes of a file. */
+    public static final int MAX_BYTES = 256;
+
+    /**
+     * Length of the header line at the start of b[0, end), the file's
+     * first bytes, terminator included; 0 if there is none.
+     */
+    public static int length(byte[] b, int end) {
+        boolean wholeFile = end < MAX_BYTES;
+        end = Math.min(end, MAX_BYTES);
+        int i = KEYWORD.length();
+        if (end <= i) return 0;
+        for (int k = 0; k < i; k++) {
+            if ((b[k] | 0x20) != (KEYWORD.charAt(k) | 0x20)) return 0;
+        }
+        if (!isBlank(b[i])) return 0;
+        i = skipBlanks(b, i, end);
+        int digits = i;
+        i = octalEnd(b, i, end);
+        if (NumberScanner.digits(b, digits, i, 8) == NumberScanner.NONE) return 0;
+        i = skipBlanks(b, i, end);
+        if (i == end) return wholeFile ? i : 0;
+        if (b[i] == '\r') i++;
+        else if (b[i] != '\n') return 0;
+        return i < end && b[i] == '\n' ? i + 1 : i;
+    }
+
+    /** Entry point named by the header at the start of b[0, end), or -1. */
+    public static int entryPoint(byte[] b, int end) {
+        if (length(b, end) == 0) return -1;
+        int digits = skipBlanks(b, KEYWORD.length(), end);
+        return (int) NumberScanner.digits(b, digits, octalEnd(b, digits, end), 8);
+    }
+
+    private static int skipBlanks(byte[] b, int i, int end) {
+        while (i < end && isBlank(b[i])) i++;
+        return i;
+    }
+
+    private static int octalEnd(byte[] b, int i, int end) {
+        while (i < end && b[i] >= '0' && b[i] <= '7') i++;
+        return i;
+    }
+
+    private static boolean isBlank(byte c) {
+        return c == ' ' || c == '\t';
+    }
+}
@@ -1,10 +1,114 @@
 package BasicMachine.Memory_Module;
 
+/**
+ * Memory.java
+ * ------------
+ * Main memory: 2048 words of 16 bits by default, or any size up to
+ * MAX_WORDS given to the constructor.
+ *
+ * Storage:
+ *  Words are kept in fixed-size pages (PAGE_WORDS each) behind a page
+ *  table.  The table is sparse: a page is only allocated when a non-zero
+ *  word is first written to it, and a missing page reads as zeros.  The
+ *  table itself grows to the highest page written so far, so a large
+ *  address space costs nothing until it is used.
+ *  Pages can be shared with snapshots, copy-on-write:
+ *   - snapshot() is O(1): it shares the current page table and starts a
+ *     new generation, so every page becomes read-only for this Memory
+ *   - the first write to a shared page copies just that page (and, on
+ *     the first write after a snapshot, the small page table)
+ *   - restore() puts the snapshot's page table back and reports only
+ *     the pages that differ, so write listeners (decode caches) drop
+ *     just the dirty ranges
+ *  Each page holds its words in the layout chosen by Storage: char[]
+ *  by default (2 bytes a word), or int[], short[] or off-heap.
+ *
+ * Loading:
+ *  load() takes a binary image or load.ld octal text.  Large text files
+ *  are scanned in parallel chunks (ChunkedTextLoader) and fall back to
+ *  reading line by line if any line is not a plain octal pair.
+ *  loadLazily() only indexes the file (LazyImage); each page is read
+ *  from it the first time it is touched, so a program can start before
+ *  a large image is decoded and parts it never uses are never read.
+ *  Both record the entry point the file names (LoadHeader, or the
+ *  binary image header) and the lowest and highest address loaded.
+ */
 public class Memory {
-    // 2048 words of 16 bits 
-    private int[] data = new int[2048];
+    public static final int PAGE_BITS = 6;
+    public static final int PAGE_WORDS = 1 << PAGE_BITS;   // 64 words per page
+    private static final int PAGE_MASK = PAGE_WORDS - 1;
+
+    public static final int DEFAULT_WORDS = 2048;
+    public static final int MAX_WORDS = 1 << 24;
+
+    /** How page contents are stored; readWord/writeWord behave the same for all. */
+    public enum Storage {
+        INT, SHORT, CHAR, OFF_HEAP;
+
+        WordPage newPage() {
+            switch (this) {
+                case INT:   return new WordPage.Ints();
+                case SHORT: return new WordPage.Shorts();
+                case CHAR:  return new WordPage.Chars();
+                default:    return new WordPage.Direct();
+            }
+        }
+    }
+
+    private final int size;
+    private final Storage storage;
+    private static final int INITIAL_PAGES = DEFAULT_WORDS / PAGE_WORDS;
+
+    private final int pageCount;      // pages the address space spans
+    private WordPage[] pages;         // page table up to the highest page written, null = all-zero page
+    private boolean tableShared;      // pages is also referenced by a snapshot
+    private int[] pageGen;            // generation in which each page was copied
+    private int generation = 0;
+    private LazyImage lazy;           // image pages not read in yet, null = none
+
+    // Recorded by the last load: entry point and extent, -1 = none
+    private int entryPoint = -1;
+    private int loadedLow = -1, loadedHigh = -1;
+
+    /**
+     * Told about every change to memory contents, so caches derived from
+     * memory (e.g. decoded instructions) can drop stale entries.
+     */
+    public interface WriteListener {
+        /** Words in [from, to) may have changed. */
+        void wordsWritten(int from, int to);
+    }
+
+    /** Saved memory contents; shares pages with the Memory it came from. */
+    public static final class Snapshot {
+        private final Memory owner;
+        private final WordPage[] pages;
+
+        private Snapshot(Memory owner, WordPage[] pages) {
+            this.owner = owner;
+            this.pages = pages;
+        }
+    }
+
+    private WriteListener[] listeners = new WriteListener[0];
     
     public Memory() {
+        this(DEFAULT_WORDS);   // 2048 words of 16 bits
+    }
+
+    /** Memory of the given number of words (1 to MAX_WORDS). */
+    public Memory(int words) {
+        this(words, Storage.CHAR);
+    }
+
+    /** Memory of the given number of words, stored as given. */
+    public Memory(int words, Storage storage) {
+        if (words < 1 || words > MAX_WORDS)
+            throw new IllegalArgumentException("Memory size must be 1–" + MAX_WORDS + " words: " + words);
+        if (storage == null) throw new IllegalArgumentException("Storage must not be null");
+        size = words;
+        this.storage = storage;
+        pageCount = (size + PAGE_MASK) >>> PAGE_BITS;
         reset();  // this clears up  memory on creation
     }
 
@@ -12,62 +116,340 @@ public class Memory {
      * Clear all memory contents to zero on reset.
      */
     public void reset() {
-        for (int i = 0; i < data.length; i++) {
-            data[i] = 0;
+        lazy = null;
+        entryPoint = loadedLow = loadedHigh = -1;
+        pages = new WordPage[Math.min(pageCount, INITIAL_PAGES)];
+        tableShared = false;
+        pageGen = new int[pages.length];
+        notifyWritten(0, size);
+    }
+
+    /** Number of addressable words. */
+    public int size() {
+        return size;
+    }
+
+    /** Page storage layout. */
+    public Storage storage() {
+        return storage;
+    }
+
+    /** Number of pages currently allocated (the rest read as zero or are still to load). */
+    public int allocatedPages() {
+        int n = 0;
+        for (WordPage page : pages) if (page != null) n++;
+        return n;
+    }
+
+    /** Register a listener for memory changes. */
+    public void addWriteListener(WriteListener l) {
+        listeners = java.util.Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = l;
+    }
+
+    public void removeWriteListener(WriteListener l) {
+        for (int k = 0; k < listeners.length; k++) {
+            if (listeners[k] == l) {
+                WriteListener[] next = new WriteListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, next, 0, k);
+                System.arraycopy(listeners, k + 1, next, k, next.length - k);
+                listeners = next;
+                return;
+            }
         }
     }
 
+    private void notifyWritten(int from, int to) {
+        for (WriteListener l : listeners) l.wordsWritten(from, to);
+    }
+
     /**
      * Read a word from the given address, then places the result into the MBR.
-     * address memory address (0–2047)
+     * address memory address (0 – size-1)
      * this then returns the 16-bit value at that address, 0 if invalid
      */
     public int readWord(int address) {
-        if (address < 0 || address >= data.length) {
+        if (address < 0 || address >= size) {
             // Handles invalid addresses
             System.err.println("Memory read error: invalid address " + address);
             return 0;
         }
-        return data[address];
+        int p = address >>> PAGE_BITS;
+        if (page(p) == null && lazy != null) faultIn(p);
+        WordPage page = page(p);
+        return page == null ? 0 : page.get(address & PAGE_MASK);
     }
 
     /**
      * Write a word to the given address. Uses the value from the MBR.
-     * address memory address (0–2047)
+     * address memory address (0 – size-1)
      * value 16-bit value to write
      */
     public void writeWord(int address, int value) {
-        if (address < 0 || address >= data.length) {
+        if (address < 0 || address >= size) {
             // Handle invalid addresses 
             System.err.println("Memory write error: invalid address " + address);
             return;
         }
-        data[address] = value & 0xFFFF;  // mask to 16 bits
+        int p = address >>> PAGE_BITS;
+        value &= 0xFFFF;  // mask to 16 bits
+        if (page(p) == null && lazy != null) faultIn(p);
+        if (page(p) == null || pageGen[p] != generation) {
+            if (page(p) == null && value == 0) return;   // already zero, stay unallocated
+            ownPage(p);
+        }
+        pages[p].set(address & PAGE_MASK, value);
+        if (listeners.length > 0) notifyWritten(address, address + 1);
+    }
+
+    // Write a run of words (one binary image segment), notifying once
+    void writeWords(int start, short[] words, int count) {
+        for (int k = 0; k < count; ) {
+            int a = start + k;
+            int p = a >>> PAGE_BITS;
+            if (page(p) == null && lazy != null) faultIn(p);
+            if (page(p) == null || pageGen[p] != generation) ownPage(p);
+            WordPage page = pages[p];
+            int n = Math.min(count - k, PAGE_WORDS - (a & PAGE_MASK));
+            for (int j = 0; j < n; j++) page.set((a & PAGE_MASK) + j, words[k + j] & 0xFFFF);
+            k += n;
+        }
+        if (count > 0) notifyWritten(start, start + count);
+    }
+
+    // Page p, or null if it is all zeros (or past the end of the table)
+    private WordPage page(int p) {
+        return p < pages.length ? pages[p] : null;
+    }
+
+    // Copy page p (and the page table, if shared) before writing to it,
+    // allocating it if it does not exist yet
+    private void ownPage(int p) {
+        if (p >= pages.length) {
+            // Grow the table; the new array is this Memory's own
+            int n = Math.min(pageCount, Math.max(p + 1, pages.length * 2));
+            pages = java.util.Arrays.copyOf(pages, n);
+            tableShared = false;
+        } else if (tableShared) {
+            pages = pages.clone();
+            tableShared = false;
+        }
+        if (pageGen.length < pages.length) pageGen = java.util.Arrays.copyOf(pageGen, pages.length);
+        pages[p] = pages[p] == null ? storage.newPage() : pages[p].copy();
+        pageGen[p] = generation;
+    }
+
+    // Read page p in from the lazy image if it has words there
+    private void faultIn(int p) {
+        if (!lazy.pending(p)) return;
+        ownPage(p);
+        lazy.fill(p, pages[p]);
+        if (lazy.remaining() == 0) lazy = null;
+    }
+
+    /* -----------------------------------------------------------
+     * Snapshots
+     * ----------------------------------------------------------- */
+
+    /**
+     * Capture the current contents in O(1); later writes copy pages as
+     * needed.  A lazy load is finished first, as snapshots share pages.
+     */
+    public Snapshot snapshot() {
+        finishLoading();
+        tableShared = true;
+        generation++;
+        return new Snapshot(this, pages);
+    }
+
+    /**
+     * Return to a snapshot of this memory.  Only pages written since
+     * the snapshot are reported to write listeners.
+     */
+    public void restore(Snapshot snap) {
+        if (snap.owner != this) throw new IllegalArgumentException("Snapshot belongs to another Memory");
+        lazy = null;   // the snapshot was taken with every page loaded
+        WordPage[] current = pages;
+        pages = snap.pages;
+        tableShared = true;
+        generation++;
+        if (pageGen.length < pages.length) pageGen = java.util.Arrays.copyOf(pageGen, pages.length);
+        if (current == snap.pages) return;   // nothing written since
+
+        // Report dirty pages, merging neighbours into one range
+        int runStart = -1;
+        int end = Math.max(current.length, snap.pages.length);
+        for (int p = 0; p <= end; p++) {
+            boolean dirty = p < end && (p < current.length ? current[p] : null) != page(p);
+            if (dirty && runStart < 0) runStart = p;
+            if (!dirty && runStart >= 0) {
+                notifyWritten(runStart << PAGE_BITS, Math.min(p << PAGE_BITS, size));
+                runStart = -1;
+            }
+        }
     }
     
     /**
-     * Load program from load.ld file
+     * Load program from load.ld file (octal text) or a binary image
      */
     public void load(String filename) throws Exception {
+        java.nio.file.Path path = java.nio.file.Paths.get(filename);
+        entryPoint = loadedLow = loadedHigh = -1;
+        if (BinaryImage.isBinaryImage(path)) {
+            BinaryImage.load(path, size, this::loadWords);
+            setEntryPoint(BinaryImage.entryPoint(path));
+            return;
+        }
+        byte[] head = readHead(path);
+        int skip = LoadHeader.length(head, head.length);
+        setEntryPoint(LoadHeader.entryPoint(head, head.length));
+        if (java.nio.file.Files.size(path) >= ChunkedTextLoader.DEFAULT_MIN_BYTES
+                && ChunkedTextLoader.load(path, skip, size, Memory::scanPairLine, this::loadWords) >= 0) {
+            return;
+        }
+
         java.io.BufferedReader br = new java.io.BufferedReader(new java.io.FileReader(filename));
         String line;
+        if (skip > 0) br.readLine();   // the header
         while ((line = br.readLine()) != null) {
             String[] parts = line.trim().split("\\s+");
             if (parts.length >= 2) {
-                int addr = Integer.parseInt(parts[0], 8); // octal
-                int value = Integer.parseInt(parts[1], 8); // octal
-                writeWord(addr, value);
+                long addr = NumberScanner.parse(parts[0], 0, parts[0].length(), 8);   // octal
+                long value = NumberScanner.parse(parts[1], 0, parts[1].length(), 8);  // octal
+                if (addr == NumberScanner.NONE || value == NumberScanner.NONE) {
+                    br.close();
+                    throw new NumberFormatException("Not an octal address/value pair: " + line);
+                }
+                writeWord((int) addr, (int) value);
+                if (addr >= 0 && addr < size) noteLoaded((int) addr, (int) addr);
             }
         }
         br.close();
     }
     
     /**
-     * Get program start address (first non-zero instruction)
+     * Load a program like load(), but only index it: each page is read
+     * from the file when first touched.  Falls back to load() for files
+     * that cannot be indexed (see LazyImage).
+     */
+    public void loadLazily(String filename) throws Exception {
+        LazyImage image = LazyImage.open(java.nio.file.Paths.get(filename), size);
+        if (image == null) {
+            load(filename);
+            return;
+        }
+        finishLoading();
+        setEntryPoint(image.entryPoint());
+        loadedLow = image.low();
+        loadedHigh = image.high();
+        if (image.remaining() == 0) return;
+        lazy = image;
+        // Pages that already hold words take the image's words now
+        for (int p = 0; p < pages.length && lazy != null; p++) {
+            if (pages[p] != null && lazy.pending(p)) {
+                if (pageGen[p] != generation) ownPage(p);
+                lazy.fill(p, pages[p]);
+                if (lazy.remaining() == 0) lazy = null;
+            }
+        }
+        notifyWritten(0, size);
+    }
+
+    /** Entry point named by the last loaded file, or -1 if it named none. */
+    public int getEntryPoint() {
+        return entryPoint;
+    }
+
+    /** Lowest address the last load wrote, or -1 if it wrote nothing. */
+    public int getLowestLoadedAddress() {
+        return loadedLow;
+    }
+
+    /** Highest address the last load wrote, or -1 if it wrote nothing. */
+    public int getHighestLoadedAddress() {
+        return loadedHigh;
+    }
+
+    // A run of loaded words: write it and widen the loaded extent
+    private void loadWords(int start, short[] words, int count) {
+        writeWords(start, words, count);
+        if (count > 0) noteLoaded(start, start + count - 1);
+    }
+
+    private void noteLoaded(int low, int high) {
+        if (loadedLow < 0 || low < loadedLow) loadedLow = low;
+        if (high > loadedHigh) loadedHigh = high;
+    }
+
+    private void setEntryPoint(int entry) {
+        if (entry >= size) {
+            System.err.println("Load error: entry point " + entry + " is outside memory");
+            entry = -1;
+        }
+        entryPoint = entry;
+    }
+
+    // The first bytes of a file, enough to hold a LoadHeader line
+    private static byte[] readHead(java.nio.file.Path path) throws java.io.IOException {
+        try (java.io.InputStream in = java.nio.file.Files.newInputStream(path)) {
+            return in.readNBytes(LoadHeader.MAX_BYTES);
+        }
+    }
+
+    /** Number of pages a lazy load has still to read in. */
+    public int pendingPages() {
+        return lazy == null ? 0 : lazy.remaining();
+    }
+
+    /** Read in every page a lazy load still has pending. */
+    public void finishLoading() {
+        for (int p = 0; lazy != null && p < pageCount; p++) {
+            if (page(p) == null) faultIn(p);
+        }
+    }
+
+    // One load.ld line as the loop above reads it: the first two
+    // whitespace-separated tokens, both plain octal
+    static long scanPairLine(byte[] b, int from, int end) {
+        int a = skipSpace(b, from, end);
+        int aEnd = tokenEnd(b, a, end);
+        int v = skipSpace(b, aEnd, end);
+        if (v == end) return ChunkedTextLoader.SKIP;   // fewer than two tokens: ignored
+        long addr = NumberScanner.digits(b, a, aEnd, 8);
+        long value = NumberScanner.digits(b, v, tokenEnd(b, v, end), 8);
+        if (addr == NumberScanner.NONE || value == NumberScanner.NONE) return ChunkedTextLoader.REJECT;
+        return (addr << 32) | (value & 0xFFFF);
+    }
+
+    private static int skipSpace(byte[] b, int i, int end) {
+        while (i < end && isSpace(b[i])) i++;
+        return i;
+    }
+
+    private static int tokenEnd(byte[] b, int i, int end) {
+        while (i < end && !isSpace(b[i])) i++;
+        return i;
+    }
+
+    private static boolean isSpace(byte c) {
+        return c == ' ' || c == '\t' || c == 0x0B || c == '\f';
+    }
+
+    /**
+     * Get program start address: the entry point the loaded file names,
+     * else the first non-zero word from the lowest loaded address on.
+     * Only allocated pages, and pages a lazy load has pending, are searched.
      */
     public int getProgramStartAddress() {
-        for (int i = 0; i < data.length; i++) {
-            if (data[i] != 0) return i;
+        if (entryPoint >= 0) return entryPoint;
+        int from = Math.max(loadedLow, 0);
+        for (int p = from >>> PAGE_BITS; p < (lazy != null ? pageCount : pages.length); p++) {
+            if (page(p) == null && lazy != null) faultIn(p);
+            WordPage page = page(p);
+            if (page == null) continue;
+            for (int k = p == from >>> PAGE_BITS ? from & PAGE_MASK : 0; k < PAGE_WORDS; k++) {
+                if (page.get(k) != 0) return (p << PAGE_BITS) + k;
+            }
         }
         return 0;
     }
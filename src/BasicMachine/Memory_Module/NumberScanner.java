@@ -0,0 +1,134 @@
+package BasicMachine.Memory_Module;
+
+/**
+ * NumberScanner.java
+ * -------------------
+ * Exception-free number parsing shared by the loaders and the assembler.
+ *
+ * Every method reads a range [from, to) of a CharSequence (or of raw
+ * bytes) and returns the value as a long, or NONE if the range is not a
+ * number of the requested form, so "is this token a number?" never
+ * costs an exception.  Values are int-sized: anything that does not fit
+ * in an int is NONE.  Only ASCII digits are accepted.
+ *
+ * Forms:
+ *  - digits:  unsigned digits in radix 2, 8, 10 or 16
+ *  - parse:   like Integer.parseInt: optional '+' / '-', then digits
+ *  - literal: assembler literal: optional sign, then 0x hex, an o/q
+ *             octal suffix, or decimal
+ */
+public final class NumberScanner {
+
+    /** Result for "not a number". */
+    public static final long NONE = Long.MIN_VALUE;
+
+    private NumberScanner() {}
+
+    /** True if r is a value rather than NONE. */
+    public static boolean found(long r) {
+        return r != NONE;
+    }
+
+    /** Unsigned digits of s[from, to) in radix; NONE if empty, not digits, or too big. */
+    public static long digits(CharSequence s, int from, int to, int radix) {
+        if (from >= to) return NONE;
+        long v = 0;
+        for (int i = from; i < to; i++) {
+            int d = digit(s.charAt(i), radix);
+            if (d < 0) return NONE;
+            v = v * radix + d;
+            if (v > Integer.MAX_VALUE) return NONE;
+        }
+        return v;
+    }
+
+    /** Unsigned digits of b[from, to) in radix; NONE if empty, not digits, or too big. */
+    public static long digits(byte[] b, int from, int to, int radix) {
+        if (from >= to) return NONE;
+        long v = 0;
+        for (int i = from; i < to; i++) {
+            int d = digit((char) (b[i] & 0xFF), radix);
+            if (d < 0) return NONE;
+            v = v * radix + d;
+            if (v > Integer.MAX_VALUE) return NONE;
+        }
+        return v;
+    }
+
+    /** True if s[from, to) is non-empty and all digits of radix (any length). */
+    public static boolean isDigits(CharSequence s, int from, int to, int radix) {
+        if (from >= to) return false;
+        for (int i = from; i < to; i++) {
+            if (digit(s.charAt(i), radix) < 0) return false;
+        }
+        return true;
+    }
+
+    /** True if b[from, to) is non-empty and all digits of radix (any length). */
+    public static boolean isDigits(byte[] b, int from, int to, int radix) {
+        if (from >= to) return false;
+        for (int i = from; i < to; i++) {
+            if (digit((char) (b[i] & 0xFF), radix) < 0) return false;
+        }
+        return true;
+    }
+
+    /** s[from, to) read as Integer.parseInt(text, radix) would, or NONE. */
+    public static long parse(CharSequence s, int from, int to, int radix) {
+        if (from >= to) return NONE;
+        char first = s.charAt(from);
+        if (first == '-' || first == '+') {
+            long v = unsignedToLimit(s, from + 1, to, radix, first == '-');
+            return v == NONE || first == '+' ? v : -v;
+        }
+        return digits(s, from, to, radix);
+    }
+
+    /**
+     * Assembler literal in s[from, to): [+|-] then 0x hex, digits with an
+     * o/q suffix (octal), or decimal.  NONE if it is anything else.
+     */
+    public static long literal(CharSequence s, int from, int to) {
+        if (from >= to) return NONE;
+        boolean neg = false;
+        char first = s.charAt(from);
+        if ((first == '-' || first == '+') && to - from > 1) {
+            neg = first == '-';
+            from++;
+        }
+
+        long v;
+        char last = s.charAt(to - 1);
+        if (to - from > 2 && s.charAt(from) == '0' && (s.charAt(from + 1) | 0x20) == 'x') {
+            v = digits(s, from + 2, to, 16);
+        } else if (to - from > 1 && ((last | 0x20) == 'o' || (last | 0x20) == 'q')) {
+            v = digits(s, from, to - 1, 8);
+        } else {
+            v = digits(s, from, to, 10);
+        }
+        return v == NONE || !neg ? v : -v;
+    }
+
+    // Digits after a sign; a negative value may reach -2^31
+    private static long unsignedToLimit(CharSequence s, int from, int to, int radix, boolean negative) {
+        if (from >= to) return NONE;
+        long limit = negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+        long v = 0;
+        for (int i = from; i < to; i++) {
+            int d = digit(s.charAt(i), radix);
+            if (d < 0) return NONE;
+            v = v * radix + d;
+            if (v > limit) return NONE;
+        }
+        return v;
+    }
+
+    /** Value of ASCII digit c in radix (up to 16), or -1. */
+    public static int digit(char c, int radix) {
+        int d;
+        if (c >= '0' && c <= '9') d = c - '0';
+        else if ((c | 0x20) >= 'a' && (c | 0x20) <= 'f') d = (c | 0x20) - 'a' + 10;
+        else return -1;
+        return d < radix ? d : -1;
+    }
+}
@@ -0,0 +1,98 @@
+package BasicMachine.Memory_Module;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * WordPage.java
+ * --------------
+ * Backing store for one memory page (Memory.PAGE_WORDS words).  Values
+ * passed to set() are already masked to 16 bits, and get() returns them
+ * unsigned.
+ *
+ * Variants, picked per Memory through Memory.Storage:
+ *  - Ints:   int[]   4 bytes per word (widest, no conversion)
+ *  - Shorts: short[] 2 bytes per word, masked on read
+ *  - Chars:  char[]  2 bytes per word, unsigned as stored
+ *  - Direct: 2 bytes per word outside the Java heap, carved from shared
+ *            direct-buffer slabs (a slab is freed once none of its
+ *            pages are reachable); each page still needs one small heap
+ *            object (slab reference and offset, about 24 bytes)
+ * A JVM that only uses one variant keeps the calls in Memory monomorphic.
+ */
+abstract class WordPage {
+    static final int WORDS = Memory.PAGE_WORDS;
+
+    abstract int get(int offset);
+
+    abstract void set(int offset, int value);
+
+    /** A private copy, for copy-on-write. */
+    abstract WordPage copy();
+
+    static final class Ints extends WordPage {
+        private final int[] words;
+
+        Ints() { this(new int[WORDS]); }
+        private Ints(int[] words) { this.words = words; }
+
+        @Override int get(int offset) { return words[offset]; }
+        @Override void set(int offset, int value) { words[offset] = value; }
+        @Override WordPage copy() { return new Ints(words.clone()); }
+    }
+
+    static final class Shorts extends WordPage {
+        private final short[] words;
+
+        Shorts() { this(new short[WORDS]); }
+        private Shorts(short[] words) { this.words = words; }
+
+        @Override int get(int offset) { return words[offset] & 0xFFFF; }
+        @Override void set(int offset, int value) { words[offset] = (short) value; }
+        @Override WordPage copy() { return new Shorts(words.clone()); }
+    }
+
+    static final class Chars extends WordPage {
+        private final char[] words;
+
+        Chars() { this(new char[WORDS]); }
+        private Chars(char[] words) { this.words = words; }
+
+        @Override int get(int offset) { return words[offset]; }
+        @Override void set(int offset, int value) { words[offset] = (char) value; }
+        @Override WordPage copy() { return new Chars(words.clone()); }
+    }
+
+    static final class Direct extends WordPage {
+        private static final int PAGE_BYTES = WORDS * 2;
+        private static final int SLAB_PAGES = 64;        // 8 KB per direct allocation
+
+        private static ByteBuffer slab;
+        private static int slabNext = SLAB_PAGES;
+
+        // The page is bytes [base, base + PAGE_BYTES) of a shared slab; no
+        // buffer view of its own, so it costs one small object on the heap
+        private final ByteBuffer words;
+        private final int base;
+
+        Direct() {
+            synchronized (Direct.class) {
+                if (slabNext == SLAB_PAGES) {
+                    slab = ByteBuffer.allocateDirect(SLAB_PAGES * PAGE_BYTES).order(ByteOrder.nativeOrder());
+                    slabNext = 0;
+                }
+                words = slab;
+                base = slabNext++ * PAGE_BYTES;
+            }
+        }
+
+        @Override int get(int offset) { return words.getChar(base + (offset << 1)); }
+        @Override void set(int offset, int value) { words.putChar(base + (offset << 1), (char) value); }
+
+        @Override WordPage copy() {
+            Direct page = new Direct();
+            page.words.put(page.base, words, base, PAGE_BYTES);
+            return page;
+        }
+    }
+}
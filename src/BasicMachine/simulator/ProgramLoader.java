@@ -1,115 +1,438 @@
 package BasicMachine.simulator;
 
+import BasicMachine.Memory_Module.BinaryImage;
+import BasicMachine.Memory_Module.ChunkedTextLoader;
+import BasicMachine.Memory_Module.LoadHeader;
+import BasicMachine.Memory_Module.NumberScanner;
+
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.*;
-import java.util.regex.Pattern;
 
+/**
+ * ProgramLoader.java
+ * -------------------
+ * Loads a program file into a memory array.
+ *
+ * Formats:
+ *  The format is sniffed once from the first lines of the file and each
+ *  line is then handed to a dedicated scanner that works on the raw
+ *  bytes, without regexes, substrings or exceptions:
+ *   - OCTAL_PAIRS:   "000006 000012" (load.ld), also listing lines
+ *                    (output.lst) that start with the same address/word
+ *                    pair, whatever follows it
+ *   - ADDRESS_VALUE: "addr:value"
+ *   - RAW_DATA:      one value per line, stored at consecutive addresses
+ *  A line the scanner does not accept (ORG/LOC, "Data n", hex pairs,
+ *  odd punctuation, ...) goes through the tolerant heuristic parser,
+ *  which also handles whole files of no recognised format (MIXED).
+ *  The fast scanners only take lines they read exactly as the heuristic
+ *  parser would, so the result is the same either way.  Both read
+ *  numbers with NumberScanner, so "not a number" never throws.
+ *  Binary images (see BinaryImage) are copied in without parsing.
+ *
+ * Large files:
+ *  OCTAL_PAIRS and ADDRESS_VALUE files of at least parallelThreshold
+ *  bytes are loaded by ChunkedTextLoader, which scans chunks of the
+ *  file on several threads.  That only succeeds if every line is one
+ *  the fast scanner takes on its own (no directives, no line that
+ *  would switch the loader to octal); otherwise the file is loaded
+ *  line by line as usual.
+ *
+ * Entry point and extent:
+ *  A text file may start with a LoadHeader line ("START 000016") and a
+ *  binary image may carry an entry point in its header; entryPoint()
+ *  reports it.  lowestAddress() / highestAddress() give the range of
+ *  addresses the load wrote, tracked as words are stored.
+ */
 public class ProgramLoader {
 
+    /** Line format picked for a file. */
+    public enum Format { OCTAL_PAIRS, ADDRESS_VALUE, RAW_DATA, MIXED, BINARY }
+
+    private static final int SNIFF_LINES = 32;    // content lines examined to pick a format
+    private static final int SNIFF_BYTES = 64 * 1024;
+
     private boolean octalListingDetected = false;
+    private Format lastFormat;
+    private long parallelThreshold = ChunkedTextLoader.DEFAULT_MIN_BYTES;
+    private int entryPoint = -1;
+    private int lowest = -1, highest = -1;
+
+    /** Format of the most recently loaded file (null before the first load). */
+    public Format lastFormat() {
+        return lastFormat;
+    }
+
+    /** Entry point named by the most recently loaded file, or -1 if it named none. */
+    public int entryPoint() {
+        return entryPoint;
+    }
+
+    /** Lowest address the most recent load wrote, or -1 if it wrote nothing. */
+    public int lowestAddress() {
+        return lowest;
+    }
+
+    /** Highest address the most recent load wrote, or -1 if it wrote nothing. */
+    public int highestAddress() {
+        return highest;
+    }
+
+    /** Smallest file, in bytes, that is loaded in parallel chunks. */
+    public void setParallelThreshold(long bytes) {
+        if (bytes < 0) throw new IllegalArgumentException("Threshold must not be negative: " + bytes);
+        this.parallelThreshold = bytes;
+    }
 
     public void load(File file, int[] memory) throws Exception {
-        if (memory.length < 2048)
-            throw new IllegalArgumentException("Memory must be at least 2048 words");
+        if (memory.length == 0)
+            throw new IllegalArgumentException("Memory must have at least one word");
 
         Arrays.fill(memory, 0);
+        entryPoint = lowest = highest = -1;
+
+        // binary image: one mapped bulk copy, no text parsing
+        if (BinaryImage.isBinaryImage(file.toPath())) {
+            BinaryImage.load(file.toPath(), memory.length, sink(memory));
+            setEntryPoint(BinaryImage.entryPoint(file.toPath()), memory.length);
+            lastFormat = Format.BINARY;
+            return;
+        }
+
+        if (Files.size(file.toPath()) >= parallelThreshold && loadChunked(file, memory)) return;
+
+        byte[] text = Files.readAllBytes(file.toPath());
+        int skip = LoadHeader.length(text, text.length);
+        setEntryPoint(LoadHeader.entryPoint(text, text.length), memory.length);
+        Format format = sniff(text, skip);
+        lastFormat = format;
+
         int nextAddr = 0;
+        for (int pos = skip; pos < text.length; ) {
+            int end = lineEnd(text, pos);
+            int next = scanLine(format, text, pos, end, memory, nextAddr);
+            if (next == NOT_TAKEN) {
+                String line = new String(text, pos, end - pos, StandardCharsets.UTF_8);
+                next = parseLine(line, memory, nextAddr);
+            }
+            nextAddr = next;
+            pos = end + 1;
+        }
+    }
 
-        try (BufferedReader br = new BufferedReader(
-                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
-
-            String line;
-            while ((line = br.readLine()) != null) {
-                String raw = stripInlineComments(line).trim();
-                if (raw.isEmpty()) continue;
-
-                // ORG / LOC / @
-                String upper = raw.toUpperCase(Locale.ROOT);
-                if (upper.startsWith("ORG ") || upper.startsWith("LOC ") || raw.startsWith("@")) {
-                    String addrStr = raw.replaceFirst("(?i)^(ORG|LOC)\\s*|^@", "").trim();
-                    nextAddr = parseIntAuto(addrStr);
-                    checkAddr(nextAddr);
-                    continue;
-                }
+    // Parallel load of an explicitly addressed file; false if it has to be loaded line by line
+    private boolean loadChunked(File file, int[] memory) throws Exception {
+        byte[] prefix;
+        try (InputStream in = new FileInputStream(file)) {
+            prefix = in.readNBytes(SNIFF_BYTES);
+        }
+        int skip = LoadHeader.length(prefix, prefix.length);
+        Format format = sniff(prefix, skip);
+        ChunkedTextLoader.LineScanner scanner;
+        if (format == Format.OCTAL_PAIRS) {
+            scanner = (b, from, end) -> {
+                int i = skipBlanks(b, from, end);
+                if (atLineEnd(b, i, end)) return ChunkedTextLoader.SKIP;
+                long pair = scanPair(b, i, end);
+                return pair == NO_NUMBER ? ChunkedTextLoader.REJECT : pair;
+            };
+        } else if (format == Format.ADDRESS_VALUE) {
+            boolean octal = octalListingDetected;
+            scanner = (b, from, end) -> {
+                int i = skipBlanks(b, from, end);
+                if (atLineEnd(b, i, end)) return ChunkedTextLoader.SKIP;
+                long pair = scanAddressValue(b, i, end, octal);
+                return pair == NO_NUMBER || (pair & PAIR_OCTAL_SEEN) != 0 ? ChunkedTextLoader.REJECT : pair;
+            };
+        } else {
+            return false;   // addresses depend on earlier lines
+        }
 
-                // address:value
-                int colon = raw.indexOf(':');
-                if (colon >= 0) {
-                    String aStr = raw.substring(0, colon).trim();
-                    String vStr = raw.substring(colon + 1).trim();
-                    Integer aNum = parseNumericSafe(aStr);
-                    Integer vNum = parseNumericSafe(vStr);
-                    if (aNum != null && vNum != null) {
-                        int addr = aNum;
-                        int val = vNum & 0xFFFF;
-                        checkAddr(addr);
-                        memory[addr] = val;
-                        continue;
-                    }
-                }
+        setEntryPoint(LoadHeader.entryPoint(prefix, prefix.length), memory.length);
+        long lines = ChunkedTextLoader.load(file.toPath(), skip, memory.length, scanner, sink(memory));
+        if (lines < 0) return false;
+        if (format == Format.OCTAL_PAIRS && lines > 0) octalListingDetected = true;
+        lastFormat = format;
+        return true;
+    }
+
+    // Segments of a binary image or runs of a chunked load, stored into memory
+    private BinaryImage.SegmentSink sink(int[] memory) {
+        return (start, words, count) -> {
+            for (int k = 0; k < count; k++) memory[start + k] = words[k] & 0xFFFF;
+            if (count > 0) noteStored(start, start + count - 1);
+        };
+    }
+
+    private void noteStored(int low, int high) {
+        if (lowest < 0 || low < lowest) lowest = low;
+        if (high > highest) highest = high;
+    }
+
+    private void setEntryPoint(int entry, int size) throws Exception {
+        if (entry >= 0) checkAddr(entry, size);
+        entryPoint = entry;
+    }
+
+    /* -----------------------------------------------------------
+     * Format sniffing
+     * ----------------------------------------------------------- */
+
+    // Format whose scanner accepts most of the first SNIFF_LINES content lines from byte start on
+    private static Format sniff(byte[] text, int start) {
+        int pairs = 0, addressValue = 0, raw = 0, seen = 0;
+        for (int pos = start; pos < text.length && seen < SNIFF_LINES; ) {
+            int end = lineEnd(text, pos);
+            int from = skipBlanks(text, pos, end);
+            if (!atLineEnd(text, from, end)) {
+                seen++;
+                if (scanPair(text, from, end) != NO_NUMBER) pairs++;
+                else if (scanAddressValue(text, from, end, false) != NO_NUMBER) addressValue++;
+                else if (scanNumber(text, from, end, false) != NO_NUMBER
+                        && atLineEnd(text, skipBlanks(text, numberEnd(text, from, end), end), end)) raw++;
+            }
+            pos = end + 1;
+        }
+        int best = Math.max(pairs, Math.max(addressValue, raw));
+        if (best == 0) return Format.MIXED;
+        if (best == pairs) return Format.OCTAL_PAIRS;
+        return best == addressValue ? Format.ADDRESS_VALUE : Format.RAW_DATA;
+    }
+
+    /* -----------------------------------------------------------
+     * Fast line scanners
+     * -----------------------------------------------------------
+     * Scanners return NO_NUMBER / NOT_TAKEN for anything outside their
+     * exact grammar, and only change loader state once a line is taken
+     * (in the same order as the heuristic parser, before range checks).
+     */
+
+    private static final int NOT_TAKEN = -1;
+    private static final long NO_NUMBER = -1L;
+    private static final long OCTAL_SEEN = 1L << 32;        // flag bit next to a scanned value
+    private static final long PAIR_OCTAL_SEEN = 1L << 16;   // same, next to the word of an address:value pair
+
+    // Load one line with the format's scanner; returns the next data address or NOT_TAKEN
+    private int scanLine(Format format, byte[] b, int pos, int end, int[] memory, int nextAddr) throws Exception {
+        int from = skipBlanks(b, pos, end);
+        if (atLineEnd(b, from, end)) return nextAddr;    // blank or comment only
+        switch (format) {
+            case OCTAL_PAIRS: {
+                long pair = scanPair(b, from, end);
+                if (pair == NO_NUMBER) return NOT_TAKEN;
+                int addr = (int) (pair >>> 32);
+                octalListingDetected = true;
+                store(memory, addr, (int) pair & 0xFFFF);
+                return nextAddr;
+            }
+            case ADDRESS_VALUE: {
+                long pair = scanAddressValue(b, from, end, octalListingDetected);
+                if (pair == NO_NUMBER) return NOT_TAKEN;
+                int addr = (int) (pair >>> 32);
+                if ((pair & PAIR_OCTAL_SEEN) != 0) octalListingDetected = true;
+                store(memory, addr, (int) pair & 0xFFFF);
+                return nextAddr;
+            }
+            case RAW_DATA: {
+                long v = scanNumber(b, from, end, octalListingDetected);
+                if (v == NO_NUMBER || !atLineEnd(b, skipBlanks(b, numberEnd(b, from, end), end), end))
+                    return NOT_TAKEN;
+                if ((v & OCTAL_SEEN) != 0) octalListingDetected = true;
+                store(memory, nextAddr, (int) v & 0xFFFF);
+                return nextAddr + 1;
+            }
+            default:
+                return NOT_TAKEN;
+        }
+    }
+
+    // "oct oct ..." : address << 32 | word, or NO_NUMBER
+    private static long scanPair(byte[] b, int from, int end) {
+        int i = octalEnd(b, from, end);
+        long addr = NumberScanner.digits(b, from, i, 8);
+        if (addr == NumberScanner.NONE || i == end || !isBlank(b[i])) return NO_NUMBER;
+        int w = skipBlanks(b, i, end);
+        i = octalEnd(b, w, end);
+        long word = NumberScanner.digits(b, w, i, 8);
+        if (word == NumberScanner.NONE) return NO_NUMBER;
+        if (i < end && !isBlank(b[i]) && !atComment(b, i, end)) return NO_NUMBER;
+        return (addr << 32) | (word & 0xFFFFL);
+    }
 
-                // token-based tolerant parsing
-                List<String> tokens = splitTokens(raw);
-                if (tokens.isEmpty()) continue;
-
-
-                //  "... data N" 行
-                int dataIdx = indexOfIgnoreCase(tokens, "data");
-                if (dataIdx >= 0) {
-                    if (dataIdx >= 2) {
-                        String t0 = tokens.get(0);
-                        String t1 = tokens.get(1);
-                        boolean looksOctPair =
-                                DIGITS_0_7.matcher(t0).matches() && DIGITS_0_7.matcher(t1).matches();
-
-                        Integer aTry = parseNumericSafe(t0);
-                        Integer wTry = parseNumericSafe(t1);
-                        if (aTry != null && wTry != null) {
-                            int addr = parseWithHint(t0, looksOctPair);
-                            int val  = parseWithHint(t1, looksOctPair) & 0xFFFF;
-                            checkAddr(addr);
-                            memory[addr] = val;
-                            continue;
-                        }
-                    }
-
-                    if (dataIdx + 1 < tokens.size()) {
-                        Integer v = parseNumericSafe(tokens.get(dataIdx + 1));
-                        if (v != null) {
-                            int val = v & 0xFFFF;
-                            checkAddr(nextAddr);
-                            memory[nextAddr++] = val;
-                        }
-                    }
-                    continue;
+    private static int octalEnd(byte[] b, int i, int end) {
+        while (i < end && b[i] >= '0' && b[i] <= '7') i++;
+        return i;
+    }
+
+    // "num : num" : address << 32 | word, plus PAIR_OCTAL_SEEN if either
+    // number switched the loader to octal; or NO_NUMBER
+    private static long scanAddressValue(byte[] b, int from, int end, boolean octal) {
+        long a = scanNumber(b, from, end, octal);
+        if (a == NO_NUMBER) return NO_NUMBER;
+        int i = skipBlanks(b, numberEnd(b, from, end), end);
+        if (i == end || b[i] != ':') return NO_NUMBER;
+        i = skipBlanks(b, i + 1, end);
+        long v = scanNumber(b, i, end, octal || (a & OCTAL_SEEN) != 0);
+        if (v == NO_NUMBER || !atLineEnd(b, skipBlanks(b, numberEnd(b, i, end), end), end)) return NO_NUMBER;
+        boolean seen = ((a | v) & OCTAL_SEEN) != 0;
+        return ((a & 0x7FFFFFFFL) << 32) | (v & 0xFFFFL) | (seen ? PAIR_OCTAL_SEEN : 0);
+    }
+
+    /**
+     * One number as parseIntAuto reads it, or NO_NUMBER.  Covers 0x hex,
+     * o/q octal suffixes and plain digits (binary, decimal or octal by
+     * the same rules); signs and underscores are left to the fallback.
+     * The value is returned with OCTAL_SEEN set if parseIntAuto would
+     * have switched the loader to octal.
+     */
+    private static long scanNumber(byte[] b, int from, int end, boolean octal) {
+        int stop = numberEnd(b, from, end);
+        int len = stop - from;
+        if (len == 0) return NO_NUMBER;
+
+        long v;
+        int last = b[stop - 1] | 0x20;
+        if (len > 2 && b[from] == '0' && (b[from + 1] | 0x20) == 'x') {
+            v = NumberScanner.digits(b, from + 2, stop, 16);                 // hex
+        } else if (last == 'o' || last == 'q') {
+            v = NumberScanner.digits(b, from, stop - 1, 8);                  // explicit octal
+        } else if (len <= 16 && NumberScanner.isDigits(b, from, stop, 2)) {
+            v = NumberScanner.digits(b, from, stop, 2);                      // binary
+        } else {
+            boolean octalDigits = NumberScanner.isDigits(b, from, stop, 8);
+            if (octal && octalDigits) {
+                v = NumberScanner.digits(b, from, stop, 8);                  // octal already detected
+            } else {
+                v = NumberScanner.digits(b, from, stop, 10);
+                if (v > 0xFFFF && octalDigits) {                             // too big → octal
+                    long oct = NumberScanner.digits(b, from, stop, 8);
+                    if (oct <= 0xFFFF) return oct | OCTAL_SEEN;
                 }
+            }
+        }
+        return v == NumberScanner.NONE ? NO_NUMBER : v;
+    }
+
+    // End of the token starting at from (stops at blanks, ':' and comments)
+    private static int numberEnd(byte[] b, int from, int end) {
+        int i = from;
+        while (i < end && !isBlank(b[i]) && b[i] != ':' && !atComment(b, i, end)) i++;
+        return i;
+    }
+
+    private static int lineEnd(byte[] b, int pos) {
+        while (pos < b.length && b[pos] != '\n' && b[pos] != '\r') pos++;
+        return pos;
+    }
 
-                List<Integer> nums = allNumeric(tokens);
-                if (nums.size() >= 2) {
-                    String t0 = tokens.get(0);
-                    String t1 = tokens.get(1);
-                    boolean looksOctPair = DIGITS_0_7.matcher(t0).matches() && DIGITS_0_7.matcher(t1).matches();
-
-                    Integer addrTry = parseNumericSafe(t0);
-                    Integer wordTry = parseNumericSafe(t1);
-                    if (addrTry != null && wordTry != null) {
-                        int addr = parseWithHint(t0, looksOctPair);
-                        int val  = parseWithHint(t1, looksOctPair) & 0xFFFF;
-                        checkAddr(addr);
-                        memory[addr] = val;
-                        continue;
-                    }
+    private static int skipBlanks(byte[] b, int i, int end) {
+        while (i < end && isBlank(b[i])) i++;
+        return i;
+    }
+
+    // Nothing but a comment (or nothing) left on the line
+    private static boolean atLineEnd(byte[] b, int i, int end) {
+        return i == end || atComment(b, i, end);
+    }
+
+    private static boolean atComment(byte[] b, int i, int end) {
+        return b[i] == ';' || b[i] == '#' || (b[i] == '/' && i + 1 < end && b[i + 1] == '/');
+    }
+
+    private static boolean isBlank(byte c) {
+        return c == ' ' || c == '\t';
+    }
+
+
+    /* -----------------------------------------------------------
+     * Heuristic parser (fallback)
+     * ----------------------------------------------------------- */
+
+    // Load one line of any supported shape; returns the next data address
+    private int parseLine(String line, int[] memory, int nextAddr) throws Exception {
+        String raw = stripInlineComments(line).trim();
+        if (raw.isEmpty()) return nextAddr;
+
+        // ORG / LOC / @
+        String upper = raw.toUpperCase(Locale.ROOT);
+        if (upper.startsWith("ORG ") || upper.startsWith("LOC ") || raw.startsWith("@")) {
+            String addrStr = raw.replaceFirst("(?i)^(ORG|LOC)\\s*|^@", "").trim();
+            nextAddr = parseIntAuto(addrStr);
+            checkAddr(nextAddr, memory.length);
+            return nextAddr;
+        }
+
+        // address:value
+        int colon = raw.indexOf(':');
+        if (colon >= 0) {
+            String aStr = raw.substring(0, colon).trim();
+            String vStr = raw.substring(colon + 1).trim();
+            long aNum = scanAuto(aStr);
+            long vNum = scanAuto(vStr);
+            if (aNum != NumberScanner.NONE && vNum != NumberScanner.NONE) {
+                int addr = (int) aNum;
+                int val = (int) vNum & 0xFFFF;
+                store(memory, addr, val);
+                return nextAddr;
+            }
+        }
+
+        // token-based tolerant parsing
+        List<String> tokens = splitTokens(raw);
+        if (tokens.isEmpty()) return nextAddr;
+
+
+        //  "... data N" 行
+        int dataIdx = indexOfIgnoreCase(tokens, "data");
+        if (dataIdx >= 0) {
+            if (dataIdx >= 2) {
+                String t0 = tokens.get(0);
+                String t1 = tokens.get(1);
+                boolean looksOctPair = isOctalDigits(t0) && isOctalDigits(t1);
+
+                long aTry = scanAuto(t0);
+                long wTry = scanAuto(t1);
+                if (aTry != NumberScanner.NONE && wTry != NumberScanner.NONE) {
+                    int addr = parseWithHint(t0, looksOctPair);
+                    int val  = parseWithHint(t1, looksOctPair) & 0xFFFF;
+                    store(memory, addr, val);
+                    return nextAddr;
                 }
+            }
 
-                if (nums.size() == 1) {
-                    int val = nums.get(0) & 0xFFFF;
-                    checkAddr(nextAddr);
-                    memory[nextAddr++] = val;
-                    continue;
+            if (dataIdx + 1 < tokens.size()) {
+                long v = scanAuto(tokens.get(dataIdx + 1));
+                if (v != NumberScanner.NONE) {
+                    int val = (int) v & 0xFFFF;
+                    store(memory, nextAddr++, val);
                 }
             }
+            return nextAddr;
+        }
+
+        List<Integer> nums = allNumeric(tokens);
+        if (nums.size() >= 2) {
+            String t0 = tokens.get(0);
+            String t1 = tokens.get(1);
+            boolean looksOctPair = isOctalDigits(t0) && isOctalDigits(t1);
+
+            long addrTry = scanAuto(t0);
+            long wordTry = scanAuto(t1);
+            if (addrTry != NumberScanner.NONE && wordTry != NumberScanner.NONE) {
+                int addr = parseWithHint(t0, looksOctPair);
+                int val  = parseWithHint(t1, looksOctPair) & 0xFFFF;
+                store(memory, addr, val);
+                return nextAddr;
+            }
         }
+
+        if (nums.size() == 1) {
+            int val = nums.get(0) & 0xFFFF;
+            store(memory, nextAddr++, val);
+        }
+        return nextAddr;
     }
 
     // -------- helpers --------
@@ -122,34 +445,37 @@ public class ProgramLoader {
         return s.substring(0, cut);
     }
 
-    private static void checkAddr(int addr) throws Exception {
-        if (addr < 0 || addr >= 2048) throw new Exception("Address out of range: " + addr);
+    // Store a word, widening the extent of this load
+    private void store(int[] memory, int addr, int value) throws Exception {
+        checkAddr(addr, memory.length);
+        memory[addr] = value;
+        noteStored(addr, addr);
+    }
+
+    private static void checkAddr(int addr, int size) throws Exception {
+        if (addr < 0 || addr >= size) throw new Exception("Address out of range: " + addr);
     }
 
-    private static final Pattern BIN = Pattern.compile("[01]{1,16}");
-    private static final Pattern OCT = Pattern.compile("[0-7]+");
+    private static boolean isOctalDigits(String s) {
+        return NumberScanner.isDigits(s, 0, s.length(), 8);
+    }
 
-    private static final Pattern DIGITS_0_7 = Pattern.compile("^[0-7]+$");
-    private int parseWithHint(String s, boolean preferOctal) throws Exception {
+    private int parseWithHint(String s, boolean preferOctal) {
         String t = s.replace("_", "").trim().toLowerCase(Locale.ROOT);
-        if (preferOctal && DIGITS_0_7.matcher(t).matches() && !t.startsWith("0x")) {
-            int v = Integer.parseInt(t, 8);
+        if (preferOctal && isOctalDigits(t)) {
+            long v = NumberScanner.digits(t, 0, t.length(), 8);
+            if (v == NumberScanner.NONE) throw new NumberFormatException("Octal value out of range: " + s);
             octalListingDetected = true;
-            return v;
+            return (int) v;
         }
         return parseIntAuto(s);
     }
 
-    private Integer parseNumericSafe(String token) {
-        try { return parseIntAuto(token); }
-        catch (Exception ignore) { return null; }
-    }
-
     private List<Integer> allNumeric(List<String> tokens) {
         List<Integer> out = new ArrayList<>();
         for (String t : tokens) {
-            Integer v = parseNumericSafe(t);
-            if (v != null) out.add(v);
+            long v = scanAuto(t);
+            if (v != NumberScanner.NONE) out.add((int) v);
         }
         return out;
     }
@@ -180,32 +506,41 @@ public class ProgramLoader {
         return (i <= j) ? s.substring(i, j + 1) : "";
     }
     
-    private int parseIntAuto(String s) throws Exception {
+    // Number in s for a place where one is required (ORG operand, pair words)
+    private int parseIntAuto(String s) {
+        long v = scanAuto(s);
+        if (v == NumberScanner.NONE) throw new NumberFormatException("Not a number: " + s);
+        return (int) v;
+    }
+
+    // Value of s by the loader's number rules, or NONE
+    private long scanAuto(String s) {
         String t = s.replace("_", "").trim().toLowerCase(Locale.ROOT);
-        if (t.isEmpty()) throw new NumberFormatException("empty");
+        int n = t.length();
+        if (n == 0) return NumberScanner.NONE;
 
-        if (t.startsWith("0x")) return Integer.parseInt(t.substring(2), 16);        // hex
-        if (t.endsWith("o") || t.endsWith("q")) return Integer.parseInt(t.substring(0, t.length()-1), 8); // explicit octal
-        if (BIN.matcher(t).matches()) return Integer.parseInt(t, 2);                // binary
+        if (t.startsWith("0x")) return NumberScanner.parse(t, 2, n, 16);                  // hex
+        if (t.endsWith("o") || t.endsWith("q")) return NumberScanner.parse(t, 0, n - 1, 8); // explicit octal
+        if (n <= 16 && NumberScanner.isDigits(t, 0, n, 2)) return NumberScanner.digits(t, 0, n, 2);  // binary
 
-        if (octalListingDetected && OCT.matcher(t).matches())                        // prefer octal if detected
-            return Integer.parseInt(t, 8);
+        boolean octalDigits = isOctalDigits(t);
+        if (octalListingDetected && octalDigits)                                           // prefer octal if detected
+            return NumberScanner.digits(t, 0, n, 8);
 
-        try {
-            int dec = Integer.parseInt(t, 10);
-            if (dec > 0xFFFF && OCT.matcher(t).matches()) {                          // too big → try octal
-                int oct = Integer.parseInt(t, 8);
+        long dec = NumberScanner.parse(t, 0, n, 10);
+        if (dec != NumberScanner.NONE) {
+            if (dec > 0xFFFF && octalDigits) {                                             // too big → try octal
+                long oct = NumberScanner.digits(t, 0, n, 8);
                 if (oct <= 0xFFFF) { octalListingDetected = true; return oct; }
             }
             return dec;
-        } catch (NumberFormatException e) {
-            if (OCT.matcher(t).matches()) {
-                int oct = Integer.parseInt(t, 8);
-                if (oct <= 0xFFFF) octalListingDetected = true;
-                return oct;
-            }
-            throw e;
         }
+        if (octalDigits) {                                                                 // too big for an int in decimal
+            long oct = NumberScanner.digits(t, 0, n, 8);
+            if (oct != NumberScanner.NONE && oct <= 0xFFFF) octalListingDetected = true;
+            return oct;
+        }
+        return NumberScanner.NONE;
     }
 
     private int parseWord(String s) throws Exception {
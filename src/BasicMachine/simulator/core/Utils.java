@@ -1,6 +1,8 @@
 // Simulator/core/Utils.java
 package BasicMachine.simulator.core;
 
+import BasicMachine.Memory_Module.NumberScanner;
+
 public final class Utils {
     private Utils(){}
 
@@ -10,6 +12,16 @@ public final class Utils {
     }
     public static int parseOctal(String s){
         if (s==null || s.trim().isEmpty()) throw new IllegalArgumentException("empty octal");
-        return Integer.parseInt(s.trim(), 8);
+        String t = s.trim();
+        long v = NumberScanner.parse(t, 0, t.length(), 8);
+        if (v == NumberScanner.NONE) throw new IllegalArgumentException("not octal: " + t);
+        return (int) v;
+    }
+    /** Octal value of s, or otherwise if s is blank or not octal. */
+    public static int parseOctal(String s, int otherwise){
+        if (s==null) return otherwise;
+        String t = s.trim();
+        long v = NumberScanner.parse(t, 0, t.length(), 8);
+        return v == NumberScanner.NONE ? otherwise : (int) v;
     }
 }
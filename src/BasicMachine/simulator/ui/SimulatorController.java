@@ -63,9 +63,12 @@ public class SimulatorController {
             File f = programFileField.getText().isEmpty()
                     ? new File("Assembler_Part_0_final_documents/Submission_Documents/output.lst")
                     : new File(programFileField.getText());
-            new ProgramLoader().load(f, memoryRef);
+            ProgramLoader loader = new ProgramLoader();
+            loader.load(f, memoryRef);
 
-            cpu.setPC((short)6);
+            // Entry point from the file, else the first address it loaded
+            int start = loader.entryPoint() >= 0 ? loader.entryPoint() : Math.max(loader.lowestAddress(), 0);
+            cpu.setPC((short) start);
             printerArea.appendText("[IPL] Program loaded: " + f.getName() + "\n");
             refreshAll();
         } catch (Exception e) {
@@ -143,11 +146,7 @@ public class SimulatorController {
     private short parseOct6(TextField tf) {
         String s = tf.getText() == null ? "" : tf.getText().trim();
         if (s.isEmpty()) return 0;
-        try {
-            return (short) (Utils.parseOctal(s) & 0xFFFF);
-        } catch (Exception e) {
-            return 0;
-        }
+        return (short) (Utils.parseOctal(s, 0) & 0xFFFF);
     }
 
 
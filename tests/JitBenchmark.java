@@ -0,0 +1,81 @@
+import BasicMachine.CPU_Module.InstructionSet;
+import BasicMachine.CPU_Module.MachineCore;
+import BasicMachine.CPU_Module.Registers;
+import BasicMachine.Memory_Module.Memory;
+
+/**
+ * Compiled block tier benchmark
+ * Times the same hot loops on MachineCore with the block tier off
+ * (decoded-instruction cache and handler table only) and on, checks that
+ * both end in the same state, and prints the throughput of each.
+ *
+ * Usage: java -cp out JitBenchmark [repetitions]
+ */
+public class JitBenchmark {
+    private static final int ROUNDS = 5;   // the first rounds warm up the JVM
+
+    public static void main(String[] args) {
+        int reps = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        System.out.println("=== COMPILED BLOCK BENCHMARK ===\n");
+        System.out.printf("%-28s %14s %14s %8s%n", "Loop", "table (M/s)", "blocks (M/s)", "speedup");
+
+        run("tight: AMR + SOB", 1, reps);
+        run("body of 8 + SOB", 8, reps);
+        run("body of 8 + JSR/RFS + SOB", -8, reps);
+    }
+
+    // Best of ROUNDS for each mode; body < 0 adds a subroutine call to the loop
+    private static void run(String name, int body, int reps) {
+        double[] best = new double[2];
+        long[] state = new long[2];
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int mode = 0; mode < 2; mode++) {
+                Memory mem = new Memory();
+                MachineCore core = new MachineCore(mem, new Registers());
+                core.setJitEnabled(mode == 1);
+                writeLoop(mem, Math.abs(body), body < 0);
+
+                long t0 = System.nanoTime();
+                for (int rep = 0; rep < reps; rep++) {
+                    mem.writeWord(COUNT, 30000);
+                    core.setPC(0);
+                    core.resume();
+                    core.run();
+                }
+                long t = System.nanoTime() - t0;
+                best[mode] = Math.max(best[mode], core.getInstructionCount() * 1e3 / t);
+                state[mode] = core.getInstructionCount() * 31 + core.getGPR(0) * 7 + core.getGPR(2);
+            }
+        }
+        if (state[0] != state[1]) System.out.println("  MISMATCH: " + name + " ends in a different state with blocks");
+        System.out.printf("%-28s %14.1f %14.1f %7.2fx%n", name, best[0], best[1], best[1] / best[0]);
+    }
+
+    private static final int COUNT = 29, SEVEN = 30;
+
+    // R1 <- Mem[COUNT]; loop: body ops [, JSR Sub]; SOB R1, loop; HLT
+    private static void writeLoop(Memory mem, int body, boolean call) {
+        int[] ops = {InstructionSet.AMR, InstructionSet.SMR, InstructionSet.AIR, InstructionSet.LDA};
+        mem.writeWord(SEVEN, 7);
+        int pc = 0;
+        mem.writeWord(pc++, encode(InstructionSet.LDR, 1, 0, 0, COUNT));
+        int loop = pc;
+        for (int k = 0; k < body; k++) {
+            int op = ops[k % 4];
+            mem.writeWord(pc++, encode(op, k % 2 == 0 ? 0 : 2, 0, 0, op == InstructionSet.AIR ? 3 : SEVEN));
+        }
+        int sub = loop + body + 3;
+        if (call) mem.writeWord(pc++, encode(InstructionSet.JSR, 0, 0, 0, sub));
+        mem.writeWord(pc++, encode(InstructionSet.SOB, 1, 0, 0, loop));
+        mem.writeWord(pc++, encode(InstructionSet.HLT, 0, 0, 0, 0));
+        if (call) {
+            pc = sub;
+            mem.writeWord(pc++, encode(InstructionSet.AIR, 2, 0, 0, 1));
+            mem.writeWord(pc, encode(InstructionSet.RFS, 0, 0, 0, 0));
+        }
+    }
+
+    private static int encode(int op, int r, int ix, int i, int addr) {
+        return (op << 10) | (r << 8) | (ix << 6) | (i << 5) | addr;
+    }
+}
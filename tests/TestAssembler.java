@@ -0,0 +1,515 @@
+import Assembler.Assembler;
+import Assembler.AssemblyResult;
+import Assembler.BatchAssembler;
+import Assembler.IncrementalAssembler;
+import BasicMachine.CPU_Module.InstructionSet;
+import BasicMachine.Memory_Module.BinaryImage;
+import BasicMachine.Memory_Module.Memory;
+import BasicMachine.simulator.ProgramLoader;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Assembler tests
+ * Checks the streaming and two-pass assemblers against known output.
+ */
+public class TestAssembler {
+    private static int testsPassed = 0;
+    private static int testsTotal = 0;
+
+    private static final String SAMPLE =
+            "        LOC   6\n" +
+            "        Data  End      ; forward DATA reference\n" +
+            "        JZ    0,0,Next ; forward address reference\n" +
+            "Next:   LDR   3,0,6\n" +
+            "        LOC   1024\n" +
+            "End:    HLT\n";
+
+    public static void main(String[] args) {
+        System.out.println("=== ASSEMBLER TEST SUITE ===\n");
+
+        testOpcodeTable();
+        testForwardReferences();
+        testOperandSyntax();
+        testTwoPassMatchesStreaming();
+        testConcurrentAssembly();
+        testBatchAssembly();
+        testIncrementalAssembly();
+        testBinaryImage();
+        testMacrosAndIncludes();
+        testEntryPoint();
+
+        System.out.printf("%nTests Passed: %d/%d%n", testsPassed, testsTotal);
+    }
+
+    /**
+     * The shared ISA table maps both ways without clashes
+     */
+    private static void testOpcodeTable() {
+        System.out.println("--- Shared Opcode Table ---");
+        boolean roundTrip = true;
+        int defined = 0;
+        for (int op = 0; op < InstructionSet.OPCODE_COUNT; op++) {
+            if (!InstructionSet.isDefined(op)) continue;
+            defined++;
+            String m = InstructionSet.getMnemonic(op);
+            roundTrip &= InstructionSet.opcodeOf(m) == op && InstructionSet.opcodeOf(m.toLowerCase()) == op;
+        }
+        assertTest(defined == 37 && roundTrip, "All 37 mnemonics should round-trip through the table");
+        assertTest(InstructionSet.opcodeOf("RRC") != InstructionSet.opcodeOf("FADD"), "RRC and FADD should have distinct opcodes");
+        assertTest(InstructionSet.opcodeOf("LDRX") == -1 && InstructionSet.opcodeOf("DATA") == -1, "Non-instructions should not match");
+        assertTest(InstructionSet.getMnemonic(0).equals("HLT"), "Opcode 0 should be HLT");
+    }
+
+    /**
+     * Forward references are backpatched once the label is defined
+     */
+    private static void testForwardReferences() {
+        System.out.println("--- Forward Reference Backpatching ---");
+        Path dir = null;
+        try {
+            dir = Files.createTempDirectory("forward");
+            String ld = dir.resolve("test_assembler.ld").toString();
+            AssemblyResult result = assembleStreaming(SAMPLE);
+            result.generateLoadFile(ld);
+            Map<Integer, Integer> words = readLoadFile(ld);
+
+            assertTest(words.get(6) == 1024, "DATA End should be patched to 1024");
+            assertTest(words.get(7) == ((8 << 10) | 8), "JZ 0,0,Next should be patched to address 8");
+            assertTest(words.get(8) == ((1 << 10) | (3 << 8) | 6), "LDR 3,0,6 should encode directly");
+            assertTest(words.get(1024) == 0, "HLT should encode as 0");
+            assertTest(result.getSymbolTable().get("END") == 1024, "Symbol END should be 1024");
+        } catch (Exception e) {
+            assertTest(false, "Streaming assembly failed: " + e.getMessage());
+        } finally {
+            deleteAll(dir);
+        }
+    }
+
+    /**
+     * The lexer accepts register names, hex/octal numbers and either separator
+     */
+    private static void testOperandSyntax() {
+        System.out.println("\n--- Operand Syntax ---");
+        try {
+            AssemblyResult r = assembleStreaming(
+                    "LOC 0x10          ; hex LOC\n" +
+                    "DATA 0x2A\n" +
+                    "DATA 17o\n" +
+                    "ldr R2, X1, 17q   ; lower-case mnemonic, register names\n" +
+                    "LDR 1 0 5 I       ; spaces only, indirect flag\n" +
+                    "Lbl:LDR 0,0,-1\n");
+            assertTest(r.getWord(16) == 42, "DATA 0x2A should be 42");
+            assertTest(r.getWord(17) == 15, "DATA 17o should be 15");
+            assertTest(r.getWord(18) == ((1 << 10) | (2 << 8) | (1 << 6) | 15), "LDR R2, X1, 17q should encode r=2 ix=1 addr=15");
+            assertTest(r.getWord(19) == ((1 << 10) | (1 << 8) | (1 << 5) | 5), "LDR 1 0 5 I should set the indirect bit");
+            assertTest(r.getSymbolTable().get("LBL") == 20, "Label without a space should be found");
+
+            assertTest(assembleStreaming("SRC 0,15,1,1\n").getWord(0) == ((InstructionSet.SRC << 10) | (3 << 6) | 15),
+                    "SRC 0,15,1,1 should encode the largest count");
+            assertTest(assembleStreaming("LOC 177777o\nDATA 5\n").getWord(0177777) == 5, "LOC 177777o should hold a word");
+            assertTest(rejects("LOC 200000o\nDATA 5\n") && rejects("LOC 177777o\nDATA 5\nDATA 6\n")
+                            && rejects("LOC 7777777777\nDATA 5\n") && rejects("HLT\nEND 200000o\n"),
+                    "Addresses past 177777 octal should be rejected, not wrapped");
+            assertTest(rejects("SRC 0,16,1,1\n"), "SRC 0,16,1,1 should be rejected");
+            assertTest(rejects("RRC 0,Far,1,1\nLOC 20\nFar: DATA 0\n"), "A shift count label above 15 should be rejected");
+        } catch (Exception e) {
+            assertTest(false, "Operand syntax test failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The two-pass mode produces the same words as the streaming mode
+     */
+    private static void testTwoPassMatchesStreaming() {
+        System.out.println("\n--- Two-Pass vs Streaming ---");
+        try {
+            AssemblyResult streamed = assembleStreaming(SAMPLE);
+            AssemblyResult twoPass = new Assembler().assemble(Arrays.asList(SAMPLE.split("\n")));
+            assertTest(sameWords(streamed, twoPass), "Both modes should emit identical words");
+
+            Assembler lean = new Assembler();
+            lean.setKeepSource(false);
+            AssemblyResult noSource = lean.assemble(new BufferedReader(new StringReader(SAMPLE)));
+            noSource.generateListing("test_nosource.lst");
+            List<String> listing = Files.readAllLines(Paths.get("test_nosource.lst"));
+            Files.deleteIfExists(Paths.get("test_nosource.lst"));
+            boolean bare = listing.stream().noneMatch(l -> l.contains("LDR") || l.contains("null"));
+            assertTest(sameWords(streamed, noSource) && bare,
+                    "Without kept source the words match and the listing has no source text");
+        } catch (Exception e) {
+            assertTest(false, "Two-pass assembly failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Many assemblies in one JVM do not see each other's state
+     */
+    private static void testConcurrentAssembly() {
+        System.out.println("\n--- Concurrent Assembly ---");
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            AssemblyResult expected = assembleStreaming(SAMPLE);
+            List<Future<AssemblyResult>> futures = new ArrayList<>();
+            for (int n = 0; n < 200; n++) {
+                // Every other job uses a different program to catch leaking state
+                String src = (n % 2 == 0) ? SAMPLE : "LOC 6\nData 77\nHLT\n";
+                futures.add(pool.submit(() -> assembleStreaming(src)));
+            }
+
+            boolean allMatch = true;
+            for (int n = 0; n < futures.size(); n++) {
+                AssemblyResult r = futures.get(n).get();
+                if (n % 2 == 0) allMatch &= sameWords(expected, r);
+                else allMatch &= r.wordCount() == 2 && r.getWord(6) == 77;
+            }
+            assertTest(allMatch, "200 parallel assemblies should not corrupt each other");
+        } catch (Exception e) {
+            assertTest(false, "Concurrent assembly failed: " + e.getMessage());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * A directory of sources is assembled into per-file outputs
+     */
+    private static void testBatchAssembly() {
+        System.out.println("\n--- Batch Assembly ---");
+        try {
+            Path dir = Files.createTempDirectory("batch");
+            for (int n = 0; n < 10; n++) {
+                Files.write(dir.resolve("prog" + n + ".src"), SAMPLE.getBytes());
+            }
+
+            List<Path> sources = BatchAssembler.findSources(dir.toString());
+            BatchAssembler.Summary summary = BatchAssembler.assembleAll(sources, 4);
+
+            assertTest(summary.files.size() == 10, "All 10 sources should be assembled");
+            assertTest(summary.failures() == 0, "No source should fail");
+            assertTest(Files.exists(dir.resolve("prog3.lst")) && Files.exists(dir.resolve("prog3.ld")),
+                    "Each source should get its own .lst and .ld");
+            assertTest(readLoadFile(dir.resolve("prog7.ld").toString()).get(6) == 1024,
+                    "Per-file load file should contain the assembled words");
+        } catch (Exception e) {
+            assertTest(false, "Batch assembly failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Only edited LOC segments are re-encoded; label users are re-linked
+     */
+    private static void testIncrementalAssembly() {
+        System.out.println("\n--- Incremental Assembly ---");
+        try {
+            List<String> lines = new ArrayList<>(Arrays.asList(SAMPLE.split("\n")));
+            lines.add("        LOC   2000");
+            lines.add("        Data  42");
+
+            IncrementalAssembler inc = new IncrementalAssembler();
+            AssemblyResult first = inc.assemble(lines);
+            assertTest(inc.segmentCount() == 3 && inc.segmentsReencoded() == 3, "First build should encode all 3 segments");
+            assertTest(sameWords(first, new Assembler().assemble(lines)), "Incremental build should match a full build");
+
+            lines.set(lines.size() - 1, "        Data  43");
+            AssemblyResult second = inc.assemble(lines);
+            assertTest(inc.segmentsReencoded() == 1 && inc.segmentsRelinked() == 0, "Editing the last segment should re-encode only it");
+            assertTest(second.getWord(2000) == 43, "Edited word should be updated");
+
+            // Move End: every word that refers to it must follow
+            lines.set(4, "        LOC   1000");
+            AssemblyResult third = inc.assemble(lines);
+            assertTest(inc.segmentsReencoded() == 1 && inc.segmentsRelinked() == 1, "Moving a label should re-link its users only");
+            assertTest(third.getWord(6) == 1000 && !third.hasWord(1024), "DATA End should follow the label to 1000");
+            assertTest(sameWords(third, new Assembler().assemble(lines)), "Rebuilt image should match a full build");
+
+            // A macro defined in one segment and called in another, and a label defined twice
+            List<String> macro = new ArrayList<>(Arrays.asList(
+                    "        LOC   10",
+                    "LD      MACRO x",
+                    "        LDR   0,0,x",
+                    "        ENDM",
+                    "Twice:  DATA  1",
+                    "        DATA  Twice",
+                    "        LOC   20",
+                    "        LD    Twice",
+                    "        DATA  Twice",
+                    "        LOC   30",
+                    "Twice:  DATA  2"));
+            IncrementalAssembler split = new IncrementalAssembler();
+            AssemblyResult withMacro = split.assemble(macro);
+            assertTest(sameWords(withMacro, new Assembler().assemble(macro)) && withMacro.getWord(11) == 30 && withMacro.getWord(21) == 30,
+                    "Macros and duplicate labels across segments should build like a full build");
+            macro.set(8, "        LD    Twice");
+            AssemblyResult edited = split.assemble(macro);
+            assertTest(split.segmentsReencoded() == 1 && sameWords(edited, new Assembler().assemble(macro))
+                            && edited.getWord(21) == ((1 << 10) | 30),
+                    "Re-encoding the calling segment alone should still expand the macro");
+        } catch (Exception e) {
+            assertTest(false, "Incremental assembly failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The binary image loads to the same memory as the octal load file
+     */
+    private static void testBinaryImage() {
+        System.out.println("\n--- Binary Load Image ---");
+        Path dir = null;
+        try {
+            dir = Files.createTempDirectory("image");
+            String ld = dir.resolve("test_assembler.ld").toString();
+            String bin = dir.resolve("test_assembler.bin").toString();
+            AssemblyResult result = assembleStreaming(SAMPLE);
+            result.generateLoadFile(ld);
+            result.generateImage(bin);
+
+            Memory fromText = new Memory();
+            fromText.load(ld);
+            Memory fromImage = new Memory();
+            fromImage.load(bin);
+            int[] viaLoader = new int[2048];
+            new ProgramLoader().load(new File(bin), viaLoader);
+
+            boolean same = true;
+            for (int addr = 0; addr < 2048; addr++) {
+                same &= fromText.readWord(addr) == fromImage.readWord(addr) && viaLoader[addr] == fromImage.readWord(addr);
+            }
+            assertTest(same, "Memory and ProgramLoader should load the image like load.ld");
+
+            // Flip one word and the checksum must reject the file
+            byte[] bytes = Files.readAllBytes(Paths.get(bin));
+            bytes[22] ^= 1;
+            Files.write(Paths.get(bin), bytes);
+            boolean rejected = false;
+            try {
+                new Memory().load(bin);
+            } catch (IOException e) {
+                rejected = true;
+            }
+            assertTest(rejected, "A corrupted image should fail its checksum");
+
+            // An image from before the opcode renumbering (version 1)
+            result.generateImage(bin);
+            bytes = Files.readAllBytes(Paths.get(bin));
+            bytes[4] = 1;
+            bytes[5] = 0;
+            Files.write(Paths.get(bin), bytes);
+            String message = "";
+            try {
+                new Memory().load(bin);
+            } catch (IOException e) {
+                message = e.getMessage();
+            }
+            assertTest(message.contains("re-assemble"), "A version 1 image should be rejected as out of date");
+        } catch (Exception e) {
+            assertTest(false, "Binary image test failed: " + e.getMessage());
+        } finally {
+            deleteAll(dir);
+        }
+    }
+
+    /**
+     * Macros expand with their arguments; included files are spliced in
+     */
+    private static void testMacrosAndIncludes() {
+        System.out.println("\n--- Macros and Includes ---");
+        try {
+            Path dir = Files.createTempDirectory("macro");
+            Files.write(dir.resolve("consts.src"), "        DATA  7\n".getBytes());
+            Files.write(dir.resolve("main.src"), (
+                    "COPY    MACRO  src, dst       ; load src, store dst\n" +
+                    "        LDR    0,0,src\n" +
+                    "        STR    0,0,dst\n" +
+                    "        ENDM\n" +
+                    "        LOC    6\n" +
+                    "        INCLUDE consts.src\n" +
+                    "        INCLUDE \"consts.src\"\n" +
+                    "Start:  COPY   6, 20\n" +
+                    "        copy   7, 21\n" +
+                    "        HLT\n").getBytes());
+
+            AssemblyResult r = new Assembler().assemble(dir.resolve("main.src"));
+            assertTest(r.getWord(6) == 7 && r.getWord(7) == 7, "Each INCLUDE should splice in the file");
+            assertTest(r.getWord(8) == ((1 << 10) | 6) && r.getWord(9) == ((2 << 10) | 20), "COPY 6, 20 should expand to LDR/STR");
+            assertTest(r.getWord(10) == ((1 << 10) | 7) && r.getWord(11) == ((2 << 10) | 21), "A second call should use its own arguments");
+            assertTest(r.getSymbolTable().get("START") == 8, "Label on a macro call should name its first word");
+            assertTest(r.wordCount() == 7, "Macro definition itself should emit no words");
+
+            AssemblyResult twoPass = new Assembler().assemble(Files.readAllLines(dir.resolve("main.src")), dir);
+            assertTest(sameWords(r, twoPass), "Two-pass mode should expand macros the same way");
+
+            AssemblyResult redefined = assembleStreaming(
+                    "M       MACRO  x\n" +
+                    "        LDR    0,0,x\n" +
+                    "        ENDM\n" +
+                    "N       MACRO  x\n" +
+                    "        M      x\n" +
+                    "        ENDM\n" +
+                    "        M      5\n" +
+                    "        N      5\n" +
+                    "M       MACRO  x\n" +
+                    "        STR    0,0,x\n" +
+                    "        ENDM\n" +
+                    "        M      5\n" +
+                    "        N      5\n");
+            assertTest(redefined.getWord(0) == ((1 << 10) | 5) && redefined.getWord(1) == ((1 << 10) | 5)
+                            && redefined.getWord(2) == ((2 << 10) | 5) && redefined.getWord(3) == ((2 << 10) | 5),
+                    "A redefined macro should expand its new body, also inside other macros");
+
+            StringBuilder many = new StringBuilder();
+            for (int k = 0; k < 20; k++) many.append("Mac").append(k).append(" MACRO\n DATA ").append(k).append("\n ENDM\n");
+            for (int k = 19; k >= 0; k--) many.append(" mAC").append(k).append('\n');
+            AssemblyResult calls = assembleStreaming(many.toString());
+            boolean inOrder = calls.wordCount() == 20;
+            for (int k = 0; k < 20; k++) inOrder &= calls.getWord(k) == 19 - k;
+            assertTest(inOrder, "Many macros should be found by name in any case");
+        } catch (Exception e) {
+            assertTest(false, "Macro test failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * END / START names the entry point; every load path reads it back
+     * without scanning memory
+     */
+    private static void testEntryPoint() {
+        System.out.println("\n--- Entry Point ---");
+        String src =
+                "        LOC   6\n" +
+                "        Data  10        ; data first\n" +
+                "        Data  3\n" +
+                "Start:  LDR   3,0,6\n" +
+                "        HLT\n" +
+                "        END   Start\n";
+        Path dir = null;
+        try {
+            dir = Files.createTempDirectory("entry");
+            AssemblyResult r = assembleStreaming(src);
+            AssemblyResult twoPass = new Assembler().assemble(Arrays.asList(src.split("\n")));
+            assertTest(r.getEntryPoint() == 8 && twoPass.getEntryPoint() == 8 && r.wordCount() == 4,
+                    "END Start should name address 8 and emit no word");
+            assertTest(r.lowestAddress() == 6 && r.highestAddress() == 9, "The result should report its extent");
+            assertTest(assembleStreaming("        START Go\n        LOC 6\n        Data 1\nGo:     HLT\n").getEntryPoint() == 7
+                            && assembleStreaming("        LOC 6\n        HLT\n        END 12o\n").getEntryPoint() == 10,
+                    "START should take a forward label, END an address");
+            AssemblyResult undefined = assembleStreaming("        HLT\n        END Nowhere\n");
+            assertTest(undefined.getEntryPoint() == -1 && undefined.getUnresolved().containsKey("NOWHERE"),
+                    "An undefined entry label should be reported as unresolved");
+            assertTest(assembleStreaming(SAMPLE).getEntryPoint() == -1, "A program without END should have no entry point");
+
+            String ld = dir.resolve("test_entry.ld").toString();
+            String lst = dir.resolve("test_entry.lst").toString();
+            String bin = dir.resolve("test_entry.bin").toString();
+            r.generateLoadFile(ld);
+            r.generateListing(lst);
+            r.generateImage(bin);
+            assertTest(Files.readAllLines(Paths.get(ld)).get(0).equals("START 000010"),
+                    "The load file should start with the entry point");
+
+            boolean ok = true;
+            for (String file : new String[] {ld, bin}) {
+                Memory mem = new Memory();
+                mem.load(file);
+                ok &= mem.getProgramStartAddress() == 8 && mem.getLowestLoadedAddress() == 6
+                        && mem.getHighestLoadedAddress() == 9 && mem.readWord(6) == 10;
+                Memory lazy = new Memory();
+                lazy.loadLazily(file);
+                ok &= lazy.getProgramStartAddress() == 8 && lazy.readWord(9) == 0;
+            }
+            assertTest(ok, "Memory should read the entry point and extent from load.ld and the binary image");
+
+            ok = true;
+            for (String file : new String[] {ld, lst, bin}) {
+                ProgramLoader loader = new ProgramLoader();
+                int[] memory = new int[2048];
+                loader.load(new File(file), memory);
+                ok &= loader.entryPoint() == 8 && loader.lowestAddress() == 6 && loader.highestAddress() == 9
+                        && memory[8] == ((1 << 10) | (3 << 8) | 6);
+            }
+            assertTest(ok, "ProgramLoader should read the entry point from load files, listings and images");
+
+            Path zero = dir.resolve("zero.bin"), none = dir.resolve("none.bin");
+            assembleStreaming("        HLT\n        END 0\n").generateImage(zero.toString());
+            assembleStreaming(SAMPLE).generateImage(none.toString());
+            assertTest(BinaryImage.entryPoint(zero) == 0 && BinaryImage.entryPoint(none) == -1,
+                    "A binary image should tell an entry point of 0 from none");
+
+            List<String> lines = new ArrayList<>(Arrays.asList(SAMPLE.split("\n")));
+            lines.add("        LOC   2000");
+            lines.add("        END   Next");
+            assertTest(new IncrementalAssembler().assemble(lines).getEntryPoint() == 8,
+                    "An entry label from another segment should be linked");
+        } catch (Exception e) {
+            assertTest(false, "Entry point test failed: " + e);
+        } finally {
+            deleteAll(dir);
+        }
+    }
+
+    // Helper methods
+    private static AssemblyResult assembleStreaming(String src) throws IOException {
+        return new Assembler().assemble(new BufferedReader(new StringReader(src)));
+    }
+
+    // True if the streaming, two-pass and incremental builds all reject src
+    private static boolean rejects(String src) {
+        List<String> lines = Arrays.asList(src.split("\n"));
+        int rejected = 0;
+        for (int mode = 0; mode < 3; mode++) {
+            try {
+                if (mode == 0) assembleStreaming(src);
+                else if (mode == 1) new Assembler().assemble(lines);
+                else new IncrementalAssembler().assemble(lines);
+            } catch (IllegalArgumentException e) {
+                rejected++;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+        return rejected == 3;
+    }
+
+    // Remove a test's temporary directory and the files in it
+    private static void deleteAll(Path dir) {
+        if (dir == null) return;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path f : files) Files.deleteIfExists(f);
+            Files.deleteIfExists(dir);
+        } catch (IOException e) {
+            System.out.println("  (could not remove " + dir + ": " + e.getMessage() + ")");
+        }
+    }
+
+    private static boolean sameWords(AssemblyResult a, AssemblyResult b) {
+        if (a.wordCount() != b.wordCount()) return false;
+        for (int addr = 0; addr < 2048; addr++) {
+            if (a.hasWord(addr) != b.hasWord(addr) || a.getWord(addr) != b.getWord(addr)) return false;
+        }
+        return true;
+    }
+
+    private static Map<Integer, Integer> readLoadFile(String name) throws IOException {
+        Map<Integer, Integer> words = new HashMap<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(name))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] parts = line.trim().split("\\s+");
+                if (parts.length >= 2) words.put(Integer.parseInt(parts[0], 8), Integer.parseInt(parts[1], 8));
+            }
+        }
+        return words;
+    }
+
+    private static void assertTest(boolean condition, String message) {
+        testsTotal++;
+        if (condition) {
+            testsPassed++;
+            System.out.println("  PASS: " + message);
+        } else {
+            System.out.println("  FAIL: " + message);
+        }
+    }
+}
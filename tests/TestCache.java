@@ -0,0 +1,154 @@
+import BasicMachine.CPU_Module.InstructionSet;
+import BasicMachine.CPU_Module.MachineCore;
+import BasicMachine.CPU_Module.Registers;
+import BasicMachine.Memory_Module.Cache;
+import BasicMachine.Memory_Module.Memory;
+
+/**
+ * Cache model tests
+ * Checks mapping, replacement, write policies and the counts a running
+ * machine reports.
+ */
+public class TestCache {
+    private static int testsPassed = 0;
+    private static int testsTotal = 0;
+
+    public static void main(String[] args) {
+        System.out.println("=== CACHE MODEL TEST SUITE ===\n");
+
+        testMapping();
+        testReplacement();
+        testWritePolicies();
+        testMachineAccesses();
+
+        System.out.printf("%nTests Passed: %d/%d%n", testsPassed, testsTotal);
+    }
+
+    /**
+     * Words of one line share it; lines in the same set evict each other
+     */
+    private static void testMapping() {
+        System.out.println("--- Mapping ---");
+        Cache cache = new Cache(16, 4, 1, Cache.Replacement.LRU, Cache.WritePolicy.WRITE_BACK);
+        assertTest(cache.sets() == 4 && cache.lineWords() == 4, "16 words of 4-word lines, direct mapped, should have 4 sets");
+
+        for (int a = 0; a < 4; a++) cache.read(a);
+        Cache.Stats s = cache.stats();
+        assertTest(s.misses == 1 && s.hits == 3, "One line should miss once then hit");
+
+        cache.read(16);   // same set as 0
+        cache.read(0);
+        s = cache.stats();
+        assertTest(s.misses == 3 && s.evictions == 2, "Conflicting lines should evict each other");
+        assertTest(Math.abs(s.hitRate() - 0.5) < 1e-9, "Hit rate should be hits per access");
+
+        cache.resetStats();
+        assertTest(cache.stats().reads == 0 && cache.stats().hitRate() == 0.0, "resetStats should zero the counts");
+        cache.read(0);
+        assertTest(cache.stats().hits == 1, "resetStats should keep the cache contents");
+
+        try {
+            new Cache(12, 4, 1, Cache.Replacement.LRU, Cache.WritePolicy.WRITE_BACK);
+            assertTest(false, "A size that is not a power of two should be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTest(true, "A size that is not a power of two should be rejected");
+        }
+    }
+
+    /**
+     * LRU keeps a line that was just used; FIFO evicts the oldest fill
+     */
+    private static void testReplacement() {
+        System.out.println("--- Replacement ---");
+        int[] trace = {0, 4, 0, 8, 0};   // all map to set 0 of a 2-way cache with 4 sets
+
+        Cache lru = new Cache(8, 1, 2, Cache.Replacement.LRU, Cache.WritePolicy.WRITE_BACK);
+        for (int a : trace) lru.read(a);
+        assertTest(lru.stats().hits == 2, "LRU should keep the recently used line");
+
+        Cache fifo = new Cache(8, 1, 2, Cache.Replacement.FIFO, Cache.WritePolicy.WRITE_BACK);
+        for (int a : trace) fifo.read(a);
+        assertTest(fifo.stats().hits == 1, "FIFO should evict the oldest fill");
+
+        Cache full = new Cache(8, 1, 8, Cache.Replacement.LRU, Cache.WritePolicy.WRITE_BACK);
+        for (int a : trace) full.read(a);
+        assertTest(full.sets() == 1 && full.stats().hits == 2 && full.stats().evictions == 0,
+                "A fully associative cache should have no conflict evictions");
+    }
+
+    /**
+     * Write-back defers memory writes to evictions; write-through does
+     * not allocate on a write miss
+     */
+    private static void testWritePolicies() {
+        System.out.println("--- Write Policies ---");
+        Cache back = new Cache(16, 4, 1, Cache.Replacement.LRU, Cache.WritePolicy.WRITE_BACK);
+        back.write(0);
+        back.read(1);
+        back.read(16);   // evicts the dirty line
+        Cache.Stats s = back.stats();
+        assertTest(s.misses == 2 && s.hits == 1 && s.writebacks == 1 && s.memoryWrites == 0,
+                "Write-back should allocate and write back on eviction");
+        back.write(16);
+        back.flush();
+        assertTest(back.stats().writebacks == 2, "Flush should write back dirty lines");
+        back.flush();
+        assertTest(back.stats().writebacks == 2, "Flushed lines should be clean");
+
+        Cache through = new Cache(16, 4, 1, Cache.Replacement.LRU, Cache.WritePolicy.WRITE_THROUGH);
+        through.write(0);
+        through.read(0);
+        s = through.stats();
+        assertTest(s.memoryWrites == 1 && s.misses == 2 && s.writebacks == 0,
+                "Write-through should write memory and not allocate on a write miss");
+    }
+
+    /**
+     * The core reports every fetch and data access, the same with or
+     * without compiled blocks
+     */
+    private static void testMachineAccesses() {
+        System.out.println("--- Machine Accesses ---");
+        String[] stats = new String[2];
+        for (int run = 0; run < 2; run++) {
+            Memory mem = new Memory();
+            MachineCore core = new MachineCore(mem, new Registers());
+            core.setJitEnabled(run == 1);
+            core.setJitThreshold(1);
+            mem.writeWord(6, encode(InstructionSet.LDR, 0, 0, 0, 20));
+            mem.writeWord(7, encode(InstructionSet.AMR, 1, 0, 0, 21));    // loop: R1 += 3
+            mem.writeWord(8, encode(InstructionSet.STR, 1, 0, 0, 22));
+            mem.writeWord(9, encode(InstructionSet.SIR, 0, 0, 0, 1));
+            mem.writeWord(10, encode(InstructionSet.JNE, 0, 0, 0, 7));
+            mem.writeWord(11, encode(InstructionSet.HLT, 0, 0, 0, 0));
+            mem.writeWord(20, 10);
+            mem.writeWord(21, 3);
+            core.setPC(6);
+
+            Cache cache = new Cache(16, 4, 2, Cache.Replacement.LRU, Cache.WritePolicy.WRITE_BACK);
+            core.setCache(cache);
+            core.run();
+            Cache.Stats s = cache.stats();
+            stats[run] = s.toString();
+            String tier = run == 1 ? "compiled" : "interpreted";
+            assertTest(mem.readWord(22) == 30, "The " + tier + " run should compute the result");
+            assertTest(s.reads == 42 + 11 && s.writes == 10, "The " + tier + " run should report 42 fetches, 11 loads and 10 stores");
+            assertTest(s.misses == 3, "The " + tier + " run should only miss on first touch of each line");
+        }
+        assertTest(stats[0].equals(stats[1]), "Compiled blocks should report the same accesses as the interpreter");
+    }
+
+    private static int encode(int op, int r, int ix, int i, int addr) {
+        return (op << 10) | (r << 8) | (ix << 6) | (i << 5) | addr;
+    }
+
+    private static void assertTest(boolean condition, String message) {
+        testsTotal++;
+        if (condition) {
+            testsPassed++;
+            System.out.println("PASS: " + message);
+        } else {
+            System.out.println("FAIL: " + message);
+        }
+    }
+}
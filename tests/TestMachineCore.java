@@ -0,0 +1,419 @@
+import Assembler.Assembler;
+import Assembler.AssemblyResult;
+import BasicMachine.CPU_Module.Device;
+import BasicMachine.CPU_Module.InstructionSet;
+import BasicMachine.CPU_Module.MachineCore;
+import BasicMachine.CPU_Module.Registers;
+import BasicMachine.CPU_Module.RunResult;
+import BasicMachine.CPU_Module.TraceListener;
+import BasicMachine.Memory_Module.Memory;
+import java.util.*;
+
+/**
+ * MachineCore tests
+ * Checks instruction execution and the decoded-instruction cache.
+ */
+public class TestMachineCore {
+    private static int testsPassed = 0;
+    private static int testsTotal = 0;
+
+    public static void main(String[] args) {
+        System.out.println("=== MACHINE CORE TEST SUITE ===\n");
+
+        testDecodeCache();
+        testSelfModifyingCode();
+        testTracing();
+        testRegisterFile();
+        testBlockCompiler();
+        testFullProgram();
+        testArithmeticFlags();
+        testBatchExecution();
+
+        System.out.printf("%nTests Passed: %d/%d%n", testsPassed, testsTotal);
+    }
+
+    /**
+     * Re-executing an address reuses its decoded word
+     */
+    private static void testDecodeCache() {
+        System.out.println("--- Decoded Instruction Cache ---");
+        Memory mem = new Memory();
+        Registers regs = new Registers();
+        MachineCore core = new MachineCore(mem, regs);
+
+        mem.writeWord(5, encode(InstructionSet.LDR, 1, 0, 0, 20));
+        mem.writeWord(20, 7);
+
+        for (int k = 0; k < 3; k++) {
+            core.setPC(5);
+            core.runOneCycle();
+        }
+        assertTest(core.getGPR(1) == 7, "LDR 1,0,20 should load 7 into R1");
+        assertTest(core.getDecodeMisses() == 1, "Three runs of one address should decode it once");
+        assertTest(core.getIR() == mem.readWord(5) && core.getPC() == 6, "IR and PC should be set from the cached word");
+
+        mem.writeWord(5, encode(InstructionSet.LDR, 2, 0, 0, 20));
+        core.setPC(5);
+        core.runOneCycle();
+        assertTest(core.getGPR(2) == 7 && core.getDecodeMisses() == 2, "A write should invalidate the cached word");
+    }
+
+    /**
+     * A store into code is seen the next time that code runs
+     */
+    private static void testSelfModifyingCode() {
+        System.out.println("--- Self-Modifying Code ---");
+        Memory mem = new Memory();
+        Registers regs = new Registers();
+        MachineCore core = new MachineCore(mem, regs);
+
+        mem.writeWord(0, encode(InstructionSet.LDR, 3, 0, 0, 21));
+        mem.writeWord(20, 9);
+        core.setPC(0);
+        core.runOneCycle();
+        assertTest(core.getGPR(3) == 0, "First run loads mem[21] (0) into R3");
+
+        // STR 0,0,0 overwrites address 0 with LDR 3,0,20
+        core.setGPR(0, encode(InstructionSet.LDR, 3, 0, 0, 20));
+        mem.writeWord(1, encode(InstructionSet.STR, 0, 0, 0, 0));
+        core.setPC(1);
+        core.runOneCycle();
+
+        core.setPC(0);
+        core.runOneCycle();
+        assertTest(core.getGPR(3) == 9, "Second run should execute the stored instruction");
+    }
+
+    /**
+     * Headless by default; a listener sees sampled instructions and the halt
+     */
+    private static void testTracing() {
+        System.out.println("--- Tracing ---");
+        Memory mem = new Memory();
+        MachineCore core = new MachineCore(mem, new Registers());
+        for (int a = 0; a < 10; a++) mem.writeWord(a, encode(InstructionSet.LDR, 0, 0, 0, 31));
+        mem.writeWord(10, encode(InstructionSet.HLT, 0, 0, 0, 0));
+
+        assertTest(core.getTraceListener() == null, "A new core should run headless");
+
+        int[] traced = new int[1];
+        boolean[] halted = new boolean[1];
+        core.setTraceInterval(4);
+        core.setTraceListener(new TraceListener() {
+            @Override
+            public void instructionExecuted(MachineCore c) { traced[0]++; }
+
+            @Override
+            public void halted(MachineCore c) { halted[0] = true; }
+        });
+        core.setPC(0);
+        core.run();
+
+        assertTest(core.getInstructionCount() == 11, "Eleven instructions should execute");
+        assertTest(traced[0] == 2, "Sampling every 4th of 11 instructions should trace twice");
+        assertTest(halted[0] && core.isHalted(), "The listener should see the halt");
+    }
+
+    /**
+     * Register views and the headless write-back agree with single steps
+     */
+    private static void testRegisterFile() {
+        System.out.println("--- Register File ---");
+        Registers regs = new Registers();
+        Memory mem = new Memory();
+        MachineCore core = new MachineCore(mem, regs);
+        core.setGPR(2, 0x1FFFF);
+        core.setPC(0x1234);
+        assertTest(regs.getGPR(2) == 0xFFFF && regs.get(Registers.SLOT_R0 + 2) == 0xFFFF, "GPR writes should mask to 16 bits");
+        assertTest(regs.getPC() == 0x234, "PC writes should mask to 12 bits");
+
+        mem.writeWord(3, encode(InstructionSet.LDR, 1, 0, 0, 30));
+        mem.writeWord(4, encode(InstructionSet.HLT, 0, 0, 0, 0));
+        mem.writeWord(30, 0123);
+        core.setPC(3);
+        core.run();
+        assertTest(regs.getGPR(1) == 0123, "Headless run should load R1");
+        assertTest(regs.getPC() == 5 && regs.getMAR() == 4 && regs.getIR() == 0 && regs.getMBR() == 0,
+                "MAR/MBR/IR should be written back for the HLT at 4");
+    }
+
+    /**
+     * Hot blocks compile, give the interpreter's results, and are
+     * invalidated by writes into them
+     */
+    private static void testBlockCompiler() {
+        System.out.println("--- Compiled Blocks ---");
+        Memory mem = new Memory();
+        MachineCore core = new MachineCore(mem, new Registers());
+        for (int r = 0; r < 4; r++) mem.writeWord(r, encode(InstructionSet.LDR, r, 0, 0, 20 + r));
+        mem.writeWord(4, encode(InstructionSet.STR, 1, 0, 0, 24));
+        mem.writeWord(5, encode(InstructionSet.HLT, 0, 0, 0, 0));
+        for (int k = 0; k < 4; k++) mem.writeWord(20 + k, 100 + k);
+
+        core.setJitThreshold(3);
+        for (int k = 0; k < 5; k++) {
+            core.setPC(0);
+            core.resume();
+            core.run();
+        }
+        assertTest(core.getBlocksCompiled() == 1, "A hot block should be compiled once");
+        assertTest(core.getGPR(3) == 103 && mem.readWord(24) == 101, "Compiled block should load and store like the interpreter");
+        assertTest(core.getInstructionCount() == 30 && core.getPC() == 6 && core.getIR() == 0,
+                "Instruction count, PC and IR should match interpretation");
+
+        mem.writeWord(2, encode(InstructionSet.LDR, 2, 0, 0, 23));
+        assertTest(core.getBlocksInvalidated() == 1, "A write into the block should invalidate it");
+        core.setPC(0);
+        core.resume();
+        core.run();
+        assertTest(core.getGPR(2) == 103 && core.getBlocksCompiled() == 2, "The changed code should be recompiled and run");
+
+        // Block that overwrites its own next instruction
+        mem.writeWord(1, encode(InstructionSet.STR, 0, 0, 0, 2));
+        core.setGPR(0, encode(InstructionSet.LDR, 2, 0, 0, 20));
+        mem.writeWord(20, 0777);
+        core.setJitThreshold(1);
+        core.setPC(1);
+        core.resume();
+        core.run();
+        assertTest(core.getGPR(2) == 0777, "A store into the running block should take effect at once");
+
+        // Specialized loads, stores and arithmetic, direct and indexed, against the interpreter
+        int[] block = {
+                encode(InstructionSet.LDX, 0, 1, 0, 30),       // X1 <- 3
+                encode(InstructionSet.LDA, 0, 1, 0, 4),        // R0 <- 4 + X1
+                encode(InstructionSet.LDA, 1, 0, 0, 17),
+                encode(InstructionSet.AMR, 0, 0, 0, 31),       // R0 += 32767: OVERFLOW
+                encode(InstructionSet.SMR, 1, 1, 0, 27),       // R1 -= Mem[30]
+                encode(InstructionSet.AMR, 1, 1, 0, 28),       // R1 += Mem[31]
+                encode(InstructionSet.AIR, 2, 0, 0, 9),
+                encode(InstructionSet.SIR, 3, 0, 0, 1),        // R3 = -1
+                encode(InstructionSet.STX, 0, 1, 0, 29),
+                encode(InstructionSet.HLT, 0, 0, 0, 0)
+        };
+        int[][] results = new int[2][];
+        for (int jit = 0; jit < 2; jit++) {
+            Memory m = new Memory();
+            MachineCore c = new MachineCore(m, new Registers());
+            for (int k = 0; k < block.length; k++) m.writeWord(k, block[k]);
+            m.writeWord(30, 3);
+            m.writeWord(31, 32767);
+            c.setJitEnabled(jit == 1);
+            c.setJitThreshold(1);
+            c.run();
+            results[jit] = new int[] {c.getGPR(0), c.getGPR(1), c.getGPR(2), c.getGPR(3), c.getCC(),
+                    m.readWord(29), c.getPC(), (int) c.getInstructionCount()};
+        }
+        assertTest(Arrays.equals(results[0], results[1]) && results[0][0] == 0x8006 && results[0][3] == 0xFFFF,
+                "Specialized LDA/LDX/STX/AMR/SMR/AIR/SIR should match the interpreter");
+
+        // Transfers close their block, direct and indexed
+        int[][] transfers = {
+                {0, encode(InstructionSet.LDX, 0, 1, 0, 30)},    // X1 <- 10
+                {1, encode(InstructionSet.LDR, 1, 0, 0, 31)},    // R1 <- 5
+                {2, encode(InstructionSet.JMA, 0, 1, 0, 0)},     // -> 10 (indexed)
+                {10, encode(InstructionSet.AMR, 0, 0, 0, 30)},
+                {11, encode(InstructionSet.SOB, 1, 1, 0, 0)},    // -> 10 while R1 > 0
+                {12, encode(InstructionSet.JGE, 0, 0, 0, 14)},
+                {13, encode(InstructionSet.HLT, 0, 0, 0, 0)},
+                {14, encode(InstructionSet.JNE, 0, 0, 0, 16)},
+                {15, encode(InstructionSet.HLT, 0, 0, 0, 0)},
+                {16, encode(InstructionSet.JZ, 2, 0, 0, 18)},
+                {17, encode(InstructionSet.HLT, 0, 0, 0, 0)},
+                {18, encode(InstructionSet.JSR, 0, 0, 0, 20)},
+                {19, encode(InstructionSet.HLT, 0, 0, 0, 0)},
+                {20, encode(InstructionSet.RFS, 0, 0, 0, 3)}
+        };
+        int[][] runs = new int[2][];
+        int loopBlocks = 0;
+        for (int jit = 0; jit < 2; jit++) {
+            Memory m = new Memory();
+            MachineCore c = new MachineCore(m, new Registers());
+            for (int[] t : transfers) m.writeWord(t[0], t[1]);
+            m.writeWord(30, 10);
+            m.writeWord(31, 5);
+            c.setJitEnabled(jit == 1);
+            c.setJitThreshold(1);
+            c.run();
+            runs[jit] = new int[] {c.getGPR(0), c.getGPR(1), c.getGPR(3), c.getPC(), (int) c.getInstructionCount()};
+            loopBlocks = c.getBlocksCompiled();
+        }
+        assertTest(Arrays.equals(runs[0], runs[1]) && runs[1][0] == 3 && runs[1][2] == 19 && runs[1][3] == 20,
+                "Compiled JMA/SOB/JGE/JNE/JZ/JSR/RFS should match the interpreter");
+        assertTest(loopBlocks == 7, "Each transfer should close a compiled block instead of being interpreted");
+
+        // A block ending at the top of the address space wraps PC like the interpreter
+        Memory top = new Memory(4096);
+        MachineCore wrap = new MachineCore(top, new Registers());
+        top.writeWord(4094, encode(InstructionSet.LDA, 0, 0, 0, 1));
+        top.writeWord(4095, encode(InstructionSet.LDA, 1, 0, 0, 2));
+        wrap.setJitThreshold(1);
+        wrap.setPC(4094);
+        wrap.runCycles(2);
+        assertTest(wrap.getBlocksCompiled() == 1 && wrap.getPC() == 0, "PC after a block at the top of memory should wrap to 0");
+    }
+
+    private static final String PROGRAM =
+            "        LOC   0\n" +
+            "        DATA  Table          ; trap table pointer\n" +
+            "        LOC   6\n" +
+            "Five:   DATA  5\n" +
+            "Seven:  DATA  7\n" +
+            "Table:  DATA  TrapH\n" +
+            "Sum:    DATA  0\n" +
+            "Start:  LDR   1,0,Five\n" +
+            "        LDA   0,0,0\n" +
+            "Loop:   AMR   0,0,Seven      ; R0 += 7, five times\n" +
+            "        SOB   1,0,Loop\n" +
+            "        STR   0,0,Sum\n" +
+            "        LDR   2,0,Seven\n" +
+            "        JSR   0,Sub\n" +
+            "        MLT   0,2            ; 9 * 10\n" +
+            "        TRAP  0\n" +
+            "        SRC   1,2,1,1        ; R1 << 2\n" +
+            "        TRR   0,0\n" +
+            "        JCC   3,0,Done\n" +
+            "        HLT\n" +
+            "Sub:    AIR   2,3\n" +
+            "        RFS   9\n" +
+            "TrapH:  SIR   2,4\n" +
+            "        JMA   0,2,I          ; return through Mem[2]\n" +
+            "Done:   OUT   1,1\n" +
+            "        HLT\n";
+
+    /**
+     * An assembled program using most of the ISA gives the same result
+     * interpreted, block-compiled and single-stepped
+     */
+    private static void testFullProgram() {
+        System.out.println("--- Full Instruction Set ---");
+        for (String mode : new String[] {"interpreted", "compiled", "stepped"}) {
+            try {
+                Memory mem = new Memory();
+                AssemblyResult asm = loadProgram(mem);
+
+                MachineCore core = new MachineCore(mem, new Registers());
+                List<Integer> printed = new ArrayList<>();
+                core.attachDevice(1, new Device() {
+                    @Override
+                    public void write(int value) { printed.add(value); }
+                });
+                core.setPC(asm.getSymbolTable().get("START"));
+                core.setJitEnabled(!mode.equals("interpreted"));
+                core.setJitThreshold(1);
+                if (mode.equals("stepped")) {
+                    for (int k = 0; k < 100 && !core.isHalted(); k++) core.runOneCycle();
+                } else {
+                    core.run();
+                }
+
+                boolean ok = mem.readWord(asm.getSymbolTable().get("SUM")) == 35
+                        && core.getGPR(0) == 0 && core.getGPR(1) == 360
+                        && core.getGPR(2) == 6 && core.getGPR(3) == asm.getSymbolTable().get("START") + 7
+                        && (core.getCC() & MachineCore.CC_EQUAL) != 0
+                        && printed.equals(List.of(360)) && core.getMFR() == 0;
+                assertTest(ok, "Program should compute the expected state (" + mode + ")");
+            } catch (Exception e) {
+                assertTest(false, "Program failed (" + mode + "): " + e);
+            }
+        }
+    }
+
+    /**
+     * Condition codes and machine faults
+     */
+    private static void testArithmeticFlags() {
+        System.out.println("--- Condition Codes and Faults ---");
+        Memory mem = new Memory();
+        MachineCore core = new MachineCore(mem, new Registers());
+
+        core.setGPR(0, 32767);
+        mem.writeWord(0, encode(InstructionSet.AIR, 0, 0, 0, 1));
+        core.setPC(0);
+        core.runOneCycle();
+        assertTest(core.getGPR(0) == 0x8000 && (core.getCC() & MachineCore.CC_OVERFLOW) != 0, "AIR past 32767 should set OVERFLOW");
+
+        core.setGPR(2, 0);
+        mem.writeWord(1, encode(InstructionSet.DVD, 0, 2, 0, 0));
+        core.runOneCycle();
+        assertTest((core.getCC() & MachineCore.CC_DIVZERO) != 0 && core.getGPR(0) == 0x8000, "DVD by zero should set DIVZERO and leave rx");
+
+        core.setGPR(1, 0x8001);
+        mem.writeWord(2, encode(InstructionSet.RRC, 1, 0, 0, 1));   // rotate right by 1
+        core.runOneCycle();
+        assertTest(core.getGPR(1) == 0xC000, "RRC right should move bit 0 into bit 15");
+
+        mem.writeWord(3, encode(InstructionSet.MLT, 1, 2, 0, 0));
+        core.runOneCycle();
+        assertTest(core.isHalted() && core.getMFR() == MachineCore.FAULT_ILLEGAL_OPCODE, "MLT with an odd register should fault");
+    }
+
+    /**
+     * runCycles / runUntil stop exactly where asked, with or without
+     * compiled blocks
+     */
+    private static void testBatchExecution() {
+        System.out.println("--- Batch Execution ---");
+        try {
+            // Reference: full interpreted run
+            Memory refMem = new Memory();
+            AssemblyResult asm = loadProgram(refMem);
+            Map<String, Integer> sym = asm.getSymbolTable();
+            MachineCore ref = new MachineCore(refMem, new Registers());
+            ref.attachDevice(1, null);
+            ref.setJitEnabled(false);
+            ref.setPC(sym.get("START"));
+            ref.run();
+
+            Memory mem = new Memory();
+            loadProgram(mem);
+            MachineCore core = new MachineCore(mem, new Registers());
+            core.attachDevice(1, null);
+            core.setJitThreshold(1);
+            core.setPC(sym.get("START"));
+
+            RunResult r = core.runCycles(3);
+            assertTest(r.cycles == 3 && r.reason == RunResult.StopReason.CYCLE_LIMIT
+                    && core.getPC() == sym.get("START") + 3, "runCycles(3) should stop after 3 instructions");
+
+            r = core.runUntil(sym.get("LOOP"));
+            assertTest(r.reason == RunResult.StopReason.BREAKPOINT && r.cycles == 1 && core.getPC() == sym.get("LOOP"),
+                    "runUntil(address) should stop when PC reaches the address");
+
+            r = core.runUntil(s -> s.getGPR(1) == 0);
+            assertTest(r.reason == RunResult.StopReason.PREDICATE && core.getGPR(0) == 35,
+                    "runUntil(predicate) should stop once the loop counter is 0");
+
+            r = core.runCycles(1_000_000);
+            assertTest(r.reason == RunResult.StopReason.HALTED && core.isHalted(), "A large budget should run to HLT");
+            assertTest(core.getInstructionCount() == ref.getInstructionCount() && core.getGPR(1) == ref.getGPR(1),
+                    "Batched runs should execute the same instructions as one run");
+
+            r = core.runCycles(10);
+            assertTest(r.cycles == 0 && r.reason == RunResult.StopReason.HALTED, "A halted machine should not run");
+        } catch (Exception e) {
+            assertTest(false, "Batch execution failed: " + e);
+        }
+    }
+
+    // Assemble PROGRAM into memory
+    private static AssemblyResult loadProgram(Memory mem) throws Exception {
+        AssemblyResult asm = new Assembler().assemble(Arrays.asList(PROGRAM.split("\n")));
+        for (int a = 0; a < mem.size(); a++) if (asm.hasWord(a)) mem.writeWord(a, asm.getWord(a));
+        return asm;
+    }
+
+    private static int encode(int op, int r, int ix, int i, int addr) {
+        return (op << 10) | (r << 8) | (ix << 6) | (i << 5) | addr;
+    }
+
+    private static void assertTest(boolean condition, String message) {
+        testsTotal++;
+        if (condition) {
+            testsPassed++;
+            System.out.println("PASS: " + message);
+        } else {
+            System.out.println("FAIL: " + message);
+        }
+    }
+}
@@ -0,0 +1,272 @@
+import BasicMachine.CPU_Module.InstructionSet;
+import BasicMachine.CPU_Module.MachineCore;
+import BasicMachine.CPU_Module.MachineSnapshot;
+import BasicMachine.CPU_Module.Registers;
+import BasicMachine.Memory_Module.BinaryImage;
+import BasicMachine.Memory_Module.Memory;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * Paged memory tests
+ * Checks copy-on-write snapshots and the page-level memory features,
+ * including demand-paged (lazy) loading.
+ */
+public class TestPagedMemory {
+    private static int testsPassed = 0;
+    private static int testsTotal = 0;
+
+    public static void main(String[] args) {
+        System.out.println("=== PAGED MEMORY TEST SUITE ===\n");
+
+        testMemorySnapshots();
+        testMachineSnapshots();
+        testLargeMemory();
+        testStorageLayouts();
+        testLazyLoading();
+
+        System.out.printf("%nTests Passed: %d/%d%n", testsPassed, testsTotal);
+    }
+
+    /**
+     * Snapshots keep old contents; restore reports only dirty pages
+     */
+    private static void testMemorySnapshots() {
+        System.out.println("--- Memory Snapshots ---");
+        Memory mem = new Memory();
+        mem.writeWord(10, 111);
+        mem.writeWord(1000, 222);
+
+        Memory.Snapshot snap = mem.snapshot();
+        mem.writeWord(10, 333);
+        mem.writeWord(11, 444);
+        assertTest(mem.readWord(10) == 333 && mem.readWord(1000) == 222, "Writes after a snapshot should be visible");
+
+        List<int[]> ranges = new ArrayList<>();
+        mem.addWriteListener((from, to) -> ranges.add(new int[] {from, to}));
+        mem.restore(snap);
+        assertTest(mem.readWord(10) == 111 && mem.readWord(11) == 0 && mem.readWord(1000) == 222,
+                "Restore should bring back the snapshot contents");
+        assertTest(ranges.size() == 1 && ranges.get(0)[0] == 0 && ranges.get(0)[1] == Memory.PAGE_WORDS,
+                "Restore should report only the one dirty page");
+
+        // The snapshot is unchanged by writes after a restore, and can be reused
+        mem.writeWord(1000, 555);
+        mem.restore(snap);
+        assertTest(mem.readWord(1000) == 222, "A snapshot should be restorable more than once");
+
+        ranges.clear();
+        mem.restore(snap);
+        assertTest(ranges.isEmpty(), "Restoring with no writes in between should report nothing");
+
+        Memory other = new Memory();
+        try {
+            other.restore(snap);
+            assertTest(false, "Restoring another Memory's snapshot should be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTest(true, "Restoring another Memory's snapshot should be rejected");
+        }
+    }
+
+    /**
+     * A machine restarted from a snapshot reruns identically, including
+     * code it modified itself
+     */
+    private static void testMachineSnapshots() {
+        System.out.println("--- Machine Snapshots ---");
+        Memory mem = new Memory();
+        MachineCore core = new MachineCore(mem, new Registers());
+        mem.writeWord(6, encode(InstructionSet.LDR, 1, 0, 0, 20));
+        mem.writeWord(7, encode(InstructionSet.AIR, 1, 0, 0, 1));
+        mem.writeWord(8, encode(InstructionSet.STR, 1, 0, 0, 20));
+        mem.writeWord(9, encode(InstructionSet.STR, 2, 0, 0, 6));   // overwrite the first instruction with HLT (R2 = 0)
+        mem.writeWord(10, encode(InstructionSet.HLT, 0, 0, 0, 0));
+        mem.writeWord(20, 41);
+        core.setPC(6);
+
+        MachineSnapshot ipl = core.snapshot();
+        for (int run = 0; run < 3; run++) {
+            core.restore(ipl);
+            core.run();
+            boolean ok = mem.readWord(20) == 42 && core.getGPR(1) == 42 && core.getPC() == 11
+                    && mem.readWord(6) == 0 && core.isHalted();
+            assertTest(ok, "Run " + (run + 1) + " from the snapshot should give the same result");
+        }
+        core.restore(ipl);
+        assertTest(!core.isHalted() && core.getPC() == 6 && mem.readWord(6) != 0, "Restore should undo the self-modified code");
+    }
+
+    /**
+     * A large memory only allocates the pages that are written, and a
+     * wide enough register set runs code anywhere in it
+     */
+    private static void testLargeMemory() {
+        System.out.println("--- Large Memory ---");
+        Memory mem = new Memory(65536);
+        assertTest(mem.size() == 65536 && mem.allocatedPages() == 0, "A new memory should allocate no pages");
+        mem.writeWord(50000, 0);
+        assertTest(mem.allocatedPages() == 0, "Writing zero to an untouched page should not allocate it");
+        mem.writeWord(40000, encode(InstructionSet.LDR, 1, 1, 0, 5));
+        mem.writeWord(40001, encode(InstructionSet.AIR, 1, 0, 0, 1));
+        mem.writeWord(40002, encode(InstructionSet.STR, 1, 1, 0, 6));
+        mem.writeWord(40003, encode(InstructionSet.HLT, 0, 0, 0, 0));
+        mem.writeWord(50005, 41);
+        assertTest(mem.allocatedPages() == 2, "Only the written pages should be allocated");
+        assertTest(mem.getProgramStartAddress() == 40000, "Program start should be found in a high page");
+
+        try {
+            new MachineCore(mem, new Registers());
+            assertTest(false, "A 12-bit register set should be rejected for a 64K memory");
+        } catch (IllegalArgumentException e) {
+            assertTest(true, "A 12-bit register set should be rejected for a 64K memory");
+        }
+
+        Registers regs = Registers.forMemory(mem.size());
+        assertTest(regs.addressMask() == 0xFFFF, "forMemory(65536) should give 16-bit addresses");
+        MachineCore core = new MachineCore(mem, regs);
+        core.setJitThreshold(1);
+        core.setIXR(1, 50000);
+        core.setPC(40000);
+        core.run();
+        assertTest(core.isHalted() && core.getPC() == 40004 && mem.readWord(50006) == 42,
+                "Code at a high address should run and reach high data");
+
+        // The page table grows with the highest page written; snapshots survive it
+        Memory big = new Memory(Memory.MAX_WORDS, Memory.Storage.OFF_HEAP);
+        big.writeWord(3, 9);
+        Memory.Snapshot low = big.snapshot();
+        big.writeWord(Memory.MAX_WORDS - 1, 0xBEEF);
+        Memory.Snapshot high = big.snapshot();
+        big.reset();
+        big.writeWord(3, 1);
+        big.restore(high);
+        boolean kept = big.readWord(Memory.MAX_WORDS - 1) == 0xBEEF && big.readWord(3) == 9;
+        big.writeWord(Memory.MAX_WORDS - 2, 5);
+        big.restore(low);
+        kept &= big.readWord(Memory.MAX_WORDS - 1) == 0 && big.readWord(Memory.MAX_WORDS - 2) == 0
+                && big.readWord(3) == 9 && big.allocatedPages() == 1;
+        assertTest(kept, "A 16M-word memory should grow its page table and restore across it");
+
+        try {
+            new Memory(Memory.MAX_WORDS + 1);
+            assertTest(false, "Oversized memory should be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTest(true, "Oversized memory should be rejected");
+        }
+    }
+
+    /**
+     * Every storage layout reads back the same unsigned 16-bit words,
+     * keeps snapshots separate and runs the same program
+     */
+    private static void testStorageLayouts() {
+        System.out.println("--- Storage Layouts ---");
+        for (Memory.Storage storage : Memory.Storage.values()) {
+            Memory mem = new Memory(4096, storage);
+            mem.writeWord(0, 0xFFFF);
+            mem.writeWord(1, 0x1ABCD);
+            mem.writeWord(4000, 0x8000);
+            boolean ok = mem.readWord(0) == 0xFFFF && mem.readWord(1) == 0xABCD
+                    && mem.readWord(4000) == 0x8000 && mem.readWord(2) == 0;
+
+            Memory.Snapshot snap = mem.snapshot();
+            mem.writeWord(0, 7);
+            ok &= mem.readWord(0) == 7;
+            mem.restore(snap);
+            ok &= mem.readWord(0) == 0xFFFF && mem.storage() == storage;
+            assertTest(ok, storage + " storage should keep 16-bit words and snapshots");
+
+            mem.reset();
+            MachineCore core = new MachineCore(mem, Registers.forMemory(mem.size()));
+            mem.writeWord(6, encode(InstructionSet.LDR, 1, 0, 0, 20));
+            mem.writeWord(7, encode(InstructionSet.AMR, 1, 0, 0, 21));
+            mem.writeWord(8, encode(InstructionSet.STR, 1, 0, 0, 22));
+            mem.writeWord(9, encode(InstructionSet.HLT, 0, 0, 0, 0));
+            mem.writeWord(20, 40);
+            mem.writeWord(21, 2);
+            core.setPC(6);
+            core.run();
+            assertTest(mem.readWord(22) == 42, storage + " storage should run a program");
+        }
+    }
+
+    /**
+     * A lazy load reads each page on first touch, with the same contents
+     * an eager load gives
+     */
+    private static void testLazyLoading() {
+        System.out.println("--- Lazy Loading ---");
+        try {
+            StringBuilder text = new StringBuilder();
+            for (int a = 0; a < 20000; a++) text.append(String.format("%06o %06o%n", a, a * 7 & 0xFFFF));
+            text.append("000100 000001\n");   // a later line for the same address wins
+            File file = tempFile(text.toString());
+
+            Memory eager = new Memory(65536);
+            eager.load(file.getPath());
+            Memory lazy = new Memory(65536);
+            lazy.loadLazily(file.getPath());
+            assertTest(lazy.allocatedPages() == 0 && lazy.pendingPages() == 313,
+                    "A lazy load should index the file without reading any page");
+            assertTest(lazy.readWord(15000) == (15000 * 7 & 0xFFFF) && lazy.allocatedPages() == 1,
+                    "Touching a word should read in just its page");
+
+            lazy.writeWord(15001, 5);
+            lazy.writeWord(70, 9);   // into a pending page: the rest of it still comes from the file
+            boolean same = lazy.readWord(15001) == 5 && lazy.readWord(70) == 9 && lazy.readWord(71) == 71 * 7;
+            for (int a = 0; a < 65536; a++) {
+                if (a != 15001 && a != 70 && lazy.readWord(a) != eager.readWord(a)) same = false;
+            }
+            assertTest(same && lazy.readWord(0100) == 1 && lazy.pendingPages() == 0,
+                    "Lazily read pages should match an eager load");
+
+            Memory started = new Memory(65536);
+            started.loadLazily(file.getPath());
+            assertTest(started.getProgramStartAddress() == 1 && started.allocatedPages() == 1,
+                    "Finding the start address should only read the first pages");
+            started.snapshot();
+            assertTest(started.pendingPages() == 0 && started.readWord(19999) == (19999 * 7 & 0xFFFF),
+                    "A snapshot should finish the lazy load");
+
+            int[] words = new int[65536];
+            BitSet used = new BitSet();
+            for (int a = 30000; a < 30100; a++) { words[a] = a; used.set(a); }
+            File image = File.createTempFile("lazy", ".bin");
+            image.deleteOnExit();
+            BinaryImage.write(image.toPath(), words, used);
+            Memory binary = new Memory(65536);
+            binary.loadLazily(image.getPath());
+            assertTest(binary.pendingPages() == 3 && binary.readWord(30099) == 30099 && binary.readWord(29999) == 0,
+                    "A binary image should load lazily by segment");
+
+            Memory fallback = new Memory();
+            fallback.loadLazily(tempFile("000006 000012\n004000 000001\n").getPath());
+            assertTest(fallback.pendingPages() == 0 && fallback.readWord(6) == 10,
+                    "A file with an address outside memory should load eagerly");
+        } catch (Exception e) {
+            assertTest(false, "Lazy loading should not fail: " + e);
+        }
+    }
+
+    private static File tempFile(String text) throws java.io.IOException {
+        File file = File.createTempFile("lazy", ".ld");
+        file.deleteOnExit();
+        Files.write(file.toPath(), text.getBytes(java.nio.charset.StandardCharsets.US_ASCII));
+        return file;
+    }
+
+    private static int encode(int op, int r, int ix, int i, int addr) {
+        return (op << 10) | (r << 8) | (ix << 6) | (i << 5) | addr;
+    }
+
+    private static void assertTest(boolean condition, String message) {
+        testsTotal++;
+        if (condition) {
+            testsPassed++;
+            System.out.println("PASS: " + message);
+        } else {
+            System.out.println("FAIL: " + message);
+        }
+    }
+}
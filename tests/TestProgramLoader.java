@@ -0,0 +1,229 @@
+import BasicMachine.Memory_Module.Memory;
+import BasicMachine.Memory_Module.NumberScanner;
+import BasicMachine.simulator.ProgramLoader;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Program loader tests
+ * Checks format sniffing and that the fast line scanners and the
+ * parallel chunked loader load exactly what the heuristic parser does.
+ */
+public class TestProgramLoader {
+    private static int testsPassed = 0;
+    private static int testsTotal = 0;
+
+    public static void main(String[] args) {
+        System.out.println("=== PROGRAM LOADER TEST SUITE ===\n");
+
+        testOctalPairs();
+        testListing();
+        testAddressValue();
+        testRawData();
+        testMixed();
+        testNumberScanner();
+        testParallelChunks();
+        testEntryHeader();
+
+        System.out.printf("%nTests Passed: %d/%d%n", testsPassed, testsTotal);
+    }
+
+    /**
+     * load.ld pairs are octal, with blank lines and comments skipped
+     */
+    private static void testOctalPairs() {
+        System.out.println("--- Octal Pairs ---");
+        ProgramLoader loader = new ProgramLoader();
+        int[] memory = load(loader, "000006 000012\n\n000007 000003 ; comment\r\n000010 177777 # x\n");
+        assertTest(loader.lastFormat() == ProgramLoader.Format.OCTAL_PAIRS, "load.ld should be read as octal pairs");
+        assertTest(memory[6] == 10 && memory[7] == 3 && memory[8] == 0xFFFF, "Pairs should load as octal address and word");
+
+        try {
+            load(new ProgramLoader(), "004000 000001\n", 2048);
+            assertTest(false, "An address past the end of memory should be rejected");
+        } catch (RuntimeException e) {
+            assertTest(e.getCause().getMessage().contains("out of range"), "An address past the end of memory should be rejected");
+        }
+    }
+
+    /**
+     * Listing lines load by their address/word prefix; LOC and label
+     * lines go through the fallback parser
+     */
+    private static void testListing() {
+        System.out.println("--- Listing ---");
+        ProgramLoader loader = new ProgramLoader();
+        int[] memory = load(loader,
+                "                        LOC     6           ;BEGIN AT LOCATION 6\n"
+                + "000006 000012           Data    10          ;PUT 10 AT LOCATION 6\n"
+                + "000016 102207           LDX     2,7         ;X2 GETS 3\n"
+                + "                        LOC     1024\n"
+                + "002000 000000 End:      HLT                        ;STOP\n"
+                + "002001 0x0005\n");
+        assertTest(loader.lastFormat() == ProgramLoader.Format.OCTAL_PAIRS, "A listing should be read as octal pairs");
+        assertTest(memory[6] == 10 && memory[14] == 0102207, "Listing lines should load by their address/word prefix");
+        assertTest(memory[1025] == 5, "Lines the scanner does not take should still load through the fallback");
+    }
+
+    /**
+     * address:value lines use the same number rules as the fallback
+     */
+    private static void testAddressValue() {
+        System.out.println("--- Address:Value ---");
+        ProgramLoader loader = new ProgramLoader();
+        int[] memory = load(loader, "20: 0x1F\n21:17o\n22 : 99\n23: 101\n");
+        assertTest(loader.lastFormat() == ProgramLoader.Format.ADDRESS_VALUE, "addr:value lines should be sniffed");
+        assertTest(memory[20] == 31 && memory[21] == 15 && memory[22] == 99 && memory[23] == 5,
+                "Hex, octal suffix, decimal and binary values should load");
+    }
+
+    /**
+     * Raw values go to consecutive addresses; ORG moves the next address
+     */
+    private static void testRawData() {
+        System.out.println("--- Raw Data ---");
+        ProgramLoader loader = new ProgramLoader();
+        int[] memory = load(loader, "0x10\n65535\n7\nORG 0x64\n0x20\n");
+        assertTest(loader.lastFormat() == ProgramLoader.Format.RAW_DATA, "One value per line should be sniffed as raw data");
+        assertTest(memory[0] == 16 && memory[1] == 65535 && memory[2] == 7, "Raw values should fill consecutive addresses");
+        assertTest(memory[100] == 32, "ORG should move the next raw address");
+    }
+
+    /**
+     * A file with no recognised format loads through the fallback alone
+     */
+    private static void testMixed() {
+        System.out.println("--- Mixed ---");
+        ProgramLoader loader = new ProgramLoader();
+        int[] memory = load(loader, "LOC 6\nData 5\ndata 0x10\n");
+        assertTest(loader.lastFormat() == ProgramLoader.Format.MIXED, "Directive-only files should use the fallback");
+        assertTest(memory[6] == 5 && memory[7] == 16, "Data lines should load at the LOC address");
+    }
+
+    /**
+     * The shared scanner reports non-numbers as NONE instead of throwing
+     */
+    private static void testNumberScanner() {
+        System.out.println("--- Number Scanner ---");
+        assertTest(literal("42") == 42 && literal("-3") == -3 && literal("0x2A") == 42
+                        && literal("52o") == 42 && literal("52Q") == 42,
+                "Literals should read decimal, hex and octal-suffix forms");
+        assertTest(literal("LDR") == NumberScanner.NONE && literal("R1") == NumberScanner.NONE
+                        && literal("0x") == NumberScanner.NONE && literal("-") == NumberScanner.NONE,
+                "Words should not be numbers");
+        assertTest(literal("2147483647") == Integer.MAX_VALUE && literal("2147483648") == NumberScanner.NONE,
+                "Values past an int should not be numbers");
+        assertTest(NumberScanner.parse("-2147483648", 0, 11, 10) == Integer.MIN_VALUE
+                        && NumberScanner.parse("+17", 0, 3, 8) == 15 && NumberScanner.parse("+", 0, 1, 8) == NumberScanner.NONE,
+                "parse should take a sign like Integer.parseInt");
+        byte[] bytes = "x 101 y".getBytes(StandardCharsets.US_ASCII);
+        assertTest(NumberScanner.digits(bytes, 2, 5, 2) == 5 && NumberScanner.digits(bytes, 0, 3, 2) == NumberScanner.NONE,
+                "Byte ranges should scan like strings");
+    }
+
+    /**
+     * Large explicitly addressed files load in parallel chunks with the
+     * same result as line by line; anything else falls back
+     */
+    private static void testParallelChunks() {
+        System.out.println("--- Parallel Chunks ---");
+        StringBuilder text = new StringBuilder();
+        for (int k = 0; k < 40000; k++) {
+            text.append(String.format("%06o %06o%s", k % 2048, k & 0xFFFF, k % 7 == 0 ? "\r\n" : "\n"));
+        }
+        String pairs = text.toString();   // every address written many times, last write wins
+
+        ProgramLoader sequential = new ProgramLoader();
+        sequential.setParallelThreshold(Long.MAX_VALUE);
+        int[] expected = load(sequential, pairs);
+        ProgramLoader parallel = new ProgramLoader();
+        parallel.setParallelThreshold(0);
+        int[] memory = load(parallel, pairs);
+        assertTest(java.util.Arrays.equals(memory, expected) && memory[5] == 38917,
+                "Chunks should load what the sequential loader does, last write winning");
+
+        memory = load(parallel, pairs + "LOC 144\nData 7\n");   // octal, as in a listing
+        assertTest(memory[100] == 7 && memory[5] == 38917, "A directive should fall back to the sequential loader");
+
+        try {
+            load(parallel, pairs + "004000 000001\n", 2048);
+            assertTest(false, "An address past the end of memory should still be rejected");
+        } catch (RuntimeException e) {
+            assertTest(e.getCause().getMessage().contains("out of range"), "An address past the end of memory should still be rejected");
+        }
+
+        try {
+            File file = File.createTempFile("load", ".ld");
+            file.deleteOnExit();
+            StringBuilder big = new StringBuilder(pairs);
+            while (big.length() < 1 << 20) big.append(pairs);
+            Files.write(file.toPath(), big.toString().getBytes(StandardCharsets.US_ASCII));
+            Memory mem = new Memory();
+            mem.load(file.getPath());
+            assertTest(mem.readWord(5) == 38917 && mem.readWord(2047) == (38911 & 0xFFFF),
+                    "Memory.load should read a large load.ld in chunks");
+        } catch (Exception e) {
+            assertTest(false, "Memory.load should read a large load.ld in chunks: " + e);
+        }
+    }
+
+    /**
+     * A START header names the entry point and is not loaded as a word,
+     * on the line-by-line and the chunked path alike
+     */
+    private static void testEntryHeader() {
+        System.out.println("--- Entry Header ---");
+        String text = "START 000016\r\n000006 000012\n000016 102207\n000020 000001\n";
+        for (long threshold : new long[] {Long.MAX_VALUE, 0}) {
+            ProgramLoader loader = new ProgramLoader();
+            loader.setParallelThreshold(threshold);
+            int[] memory = load(loader, text);
+            assertTest(loader.entryPoint() == 14 && loader.lowestAddress() == 6 && loader.highestAddress() == 16
+                            && memory[14] == 0102207 && loader.lastFormat() == ProgramLoader.Format.OCTAL_PAIRS,
+                    (threshold == 0 ? "Chunked" : "Sequential") + " loading should read the header and the extent");
+        }
+
+        ProgramLoader plain = new ProgramLoader();
+        load(plain, "000006 000012\n");
+        assertTest(plain.entryPoint() == -1 && plain.lowestAddress() == 6, "A file without a header should have no entry point");
+
+        try {
+            load(new ProgramLoader(), "START 004000\n000006 000012\n", 2048);
+            assertTest(false, "An entry point outside memory should be rejected");
+        } catch (RuntimeException e) {
+            assertTest(e.getCause().getMessage().contains("out of range"), "An entry point outside memory should be rejected");
+        }
+    }
+
+    private static long literal(String s) {
+        return NumberScanner.literal(s, 0, s.length());
+    }
+
+    private static int[] load(ProgramLoader loader, String text) {
+        return load(loader, text, 2048);
+    }
+
+    private static int[] load(ProgramLoader loader, String text, int words) {
+        try {
+            File file = File.createTempFile("loader", ".txt");
+            file.deleteOnExit();
+            Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+            int[] memory = new int[words];
+            loader.load(file, memory);
+            return memory;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void assertTest(boolean condition, String message) {
+        testsTotal++;
+        if (condition) {
+            testsPassed++;
+            System.out.println("PASS: " + message);
+        } else {
+            System.out.println("FAIL: " + message);
+        }
+    }
+}